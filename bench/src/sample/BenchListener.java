@@ -0,0 +1,67 @@
+package sample;
+
+/**
+ * Stands in for the editor's tab and controller: counts the rows it would have built, and checks what the
+ * controller checks to enable or disable its buttons, so walking and editing cost what they would with a UI
+ * (minus the drawing).
+ */
+class BenchListener implements IEditorListener {
+	private IJsonManip jsonManip;
+	private int        rows;
+	/**
+	 * What the buttons would've been set to, so none of it gets optimized away.
+	 */
+	private int        buttonState;
+
+	/**
+	 * The json has to exist before it can be handed over, and it needs us to exist first.
+	 */
+	void setJsonManip(IJsonManip jsonManip) {
+		this.jsonManip = jsonManip;
+	}
+
+	@Override
+	public void addObjectLabel(String labelText) {
+		rows++;
+	}
+
+	@Override
+	public void addObjectCloseLabel(String labelText) {
+		rows++;
+	}
+
+	@Override
+	public void addObjectLabelWithDuplicateButton(String labelText, int index) {
+		rows++;
+	}
+
+	@Override
+	public void addPair(String key, int index) {
+		rows++;
+	}
+
+	/**
+	 * The same questions Controller.validateAllFields asks.
+	 */
+	@Override
+	public void validateAllFields() {
+		if (jsonManip == null || jsonManip.isEmpty()) {
+			buttonState = 0;
+			return;
+		}
+		buttonState = (jsonManip.isDirty() ? 1 : 0) | (jsonManip.canUndo() ? 2 : 0) | (jsonManip.canRedo() ? 4 : 0);
+	}
+
+	/**
+	 * Starts counting rows again, like rebuilding them does.
+	 */
+	int takeRows() {
+		int taken = rows;
+		rows = 0;
+		return taken;
+	}
+
+	int getButtonState() {
+		return buttonState;
+	}
+}
@@ -0,0 +1,41 @@
+package sample;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks, taking the usual JMH arguments (-p lines=100000, -f 3 and so on). Unless told otherwise,
+ * it runs all of them and writes the results as json to bench/results/, named for when it ran, so runs from
+ * before and after a change can be compared.
+ */
+public class BenchMain {
+	public static void main(String[] args) throws CommandLineOptionException, IOException, RunnerException {
+		CommandLineOptions commandLine = new CommandLineOptions(args);
+		ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+		if (commandLine.getIncludes().isEmpty()) {
+			options.include("sample\\.[A-Za-z]+Benchmark\\.");
+		}
+		if (!commandLine.getResultFormat().hasValue()) {
+			options.resultFormat(ResultFormatType.JSON);
+		}
+		if (!commandLine.getResult().hasValue()) {
+			Path results = Paths.get("bench", "results");
+			Files.createDirectories(results);
+			String name = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".json";
+			options.result(results.resolve(name).toString());
+		}
+		new Runner(options.build()).run();
+	}
+}
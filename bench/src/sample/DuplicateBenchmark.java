@@ -0,0 +1,44 @@
+package sample;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Duplicating a line the way the duplicate button does: copy it onto the end, then rebuild the rows so the copy
+ * shows up. Undone after every call, so the file doesn't keep growing.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class DuplicateBenchmark {
+	private WalkedModel duplicatedIn;
+
+	@Benchmark
+	public int duplicate(WalkedModel model) {
+		duplicatedIn = model;
+		model.manip.duplicateAndAddToList(model.manip.getElementCount() / 2);
+		model.manip.addElementsToUI();
+		return model.listener.takeRows();
+	}
+
+	@TearDown(Level.Invocation)
+	public void undo() {
+		duplicatedIn.manip.undo();
+		duplicatedIn.manip.addElementsToUI();
+		duplicatedIn.listener.takeRows();
+	}
+}
@@ -0,0 +1,51 @@
+package sample;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * One keystroke: the field's cell sets the value, then the controller checks which buttons to enable
+ * (validateAllFields). Typing into the same field keeps folding into one journal entry, like it would for real.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class EditBenchmark {
+	/**
+	 * The first field of the middle line.
+	 */
+	private int field;
+	private int keystrokes;
+
+	@Setup(Level.Trial)
+	public void pickField(WalkedModel model) {
+		field = model.manip.search("line=" + model.manip.getElementCount() / 2).nextSetBit(0);
+	}
+
+	@Benchmark
+	public int type(WalkedModel model) {
+		model.manip.setPairValue(field, (keystrokes++ & 1) == 0 ? "typed" : "typed!");
+		model.listener.validateAllFields();
+		return model.listener.getButtonState();
+	}
+
+	@Benchmark
+	public int validateAllFields(WalkedModel model) {
+		model.listener.validateAllFields();
+		return model.listener.getButtonState();
+	}
+}
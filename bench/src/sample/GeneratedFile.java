@@ -0,0 +1,60 @@
+package sample;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * A made-up resource file for a whole run, in its own temp folder so anything saved next to it gets cleaned up
+ * with it. Override the shape with -p, like -p lines=100000 -p depth=1,4.
+ */
+@State(Scope.Benchmark)
+public class GeneratedFile {
+	@Param({"1000", "20000"})
+	public int lines;
+	@Param({"2"})
+	public int depth;
+	@Param({"16"})
+	public int fields;
+	@Param({"32"})
+	public int valueSize;
+
+	Path directory;
+	Path file;
+
+	@Setup(Level.Trial)
+	public void generate() throws IOException {
+		directory = Files.createTempDirectory("jsoneditor-bench");
+		file = directory.resolve("generated.json");
+		new JsonlGenerator(lines, depth, fields, valueSize, 42).write(file);
+	}
+
+	@TearDown(Level.Trial)
+	public void delete() throws IOException {
+		List<Path> paths = new ArrayList<>();
+		try (Stream<Path> listing = Files.list(directory)) {
+			listing.forEach(paths::add);
+		}
+		for (Path path : paths) {
+			Files.deleteIfExists(path);
+		}
+		Files.deleteIfExists(directory);
+	}
+
+	/**
+	 * Somewhere to save to that isn't the original, so every save starts from the same file.
+	 */
+	Path saveTarget() {
+		return directory.resolve("saved.json");
+	}
+}
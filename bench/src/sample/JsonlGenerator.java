@@ -0,0 +1,99 @@
+package sample;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Makes up resource files to benchmark (or just try the editor out) with: one object per line, each with a set
+ * number of fields and levels of nesting. Fields take turns being strings, numbers, booleans and arrays of strings,
+ * and strings are as long as you ask. The same settings always make the same file.
+ * <pre>
+ * java -cp out:lib/gson-2.7.jar sample.JsonlGenerator big.json 100000 3 16 64
+ * </pre>
+ */
+public class JsonlGenerator {
+	private static final String LETTERS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789 ";
+
+	final private int    lines;
+	final private int    depth;
+	final private int    fields;
+	final private int    valueSize;
+	final private Random random;
+
+	/**
+	 * Depth 1 is flat, every level past that is another object inside the last one.
+	 */
+	JsonlGenerator(int lines, int depth, int fields, int valueSize, long seed) {
+		this.lines = lines;
+		this.depth = depth;
+		this.fields = fields;
+		this.valueSize = valueSize;
+		this.random = new Random(seed);
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length != 5) {
+			System.err.println("Usage: sample.JsonlGenerator <file> <lines> <depth> <fields> <value size>");
+			System.exit(2);
+		}
+		new JsonlGenerator(Integer.parseInt(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]),
+				Integer.parseInt(args[4]), 42).write(Paths.get(args[0]));
+	}
+
+	void write(Path file) throws IOException {
+		try (Writer writer = new BufferedWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+			for (int line = 0; line < lines; line++) {
+				JsonWriter json = new JsonWriter(writer); //Compact, so each object stays on its own line
+				writeObject(json, line, 1);
+				json.flush();
+				writer.write('\n');
+			}
+		}
+	}
+
+	private void writeObject(JsonWriter json, int line, int level) throws IOException {
+		json.beginObject();
+		json.name("id").value(line);
+		for (int i = 0; i < fields; i++) {
+			json.name("field" + i);
+			switch (i % 4) {
+				case 0:
+					json.value(text());
+					break;
+				case 1:
+					json.value(random.nextInt(1_000_000));
+					break;
+				case 2:
+					json.value(random.nextBoolean());
+					break;
+				default:
+					json.beginArray();
+					for (int j = 0; j < 3; j++) {
+						json.value(text());
+					}
+					json.endArray();
+			}
+		}
+		if (level < depth) {
+			json.name("nested");
+			writeObject(json, line, level + 1);
+		}
+		json.endObject();
+	}
+
+	private String text() {
+		char[] text = new char[valueSize];
+		for (int i = 0; i < text.length; i++) {
+			text[i] = LETTERS.charAt(random.nextInt(LETTERS.length()));
+		}
+		return new String(text);
+	}
+}
@@ -0,0 +1,69 @@
+package sample;
+
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Getting a file into memory (what getGson does): mapping it and finding its lines, then parsing them, on one
+ * worker and on one per core.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoadBenchmark {
+	private ForkJoinPool oneWorker;
+	private ForkJoinPool everyCore;
+
+	@Setup(Level.Trial)
+	public void startPools() {
+		oneWorker = new ForkJoinPool(1);
+		everyCore = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+	}
+
+	@TearDown(Level.Trial)
+	public void stopPools() {
+		oneWorker.shutdown();
+		everyCore.shutdown();
+	}
+
+	/**
+	 * All opening a file does before rows start showing up. Lines don't get parsed until they're needed.
+	 */
+	@Benchmark
+	public IJsonManip open(GeneratedFile file) throws IOException {
+		return new JsonManipGsonImpl(IEditorListener.NONE, file.file);
+	}
+
+	@Benchmark
+	public IJsonManip openAndParse(GeneratedFile file) throws IOException {
+		return parseAll(file, oneWorker);
+	}
+
+	@Benchmark
+	public IJsonManip openAndParseInParallel(GeneratedFile file) throws IOException {
+		return parseAll(file, everyCore);
+	}
+
+	private static IJsonManip parseAll(GeneratedFile file, ForkJoinPool pool) throws IOException {
+		JsonManipGsonImpl manip = new JsonManipGsonImpl(IEditorListener.NONE, file.file);
+		manip.parseElements(0, manip.getElementCount(), pool);
+		return manip;
+	}
+}
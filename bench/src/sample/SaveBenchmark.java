@@ -0,0 +1,54 @@
+package sample;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Writing a file back out (saveData): changed lines get serialized again, everything else gets copied as-is.
+ * How many lines were changed is a parameter, from one in a hundred to all of them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SaveBenchmark {
+	/**
+	 * A walked file with the first field of some of its lines changed, new for every call.
+	 */
+	@State(Scope.Thread)
+	public static class Edited {
+		@Param({"1", "100"})
+		public int editedPercent;
+
+		JsonManipGsonImpl manip;
+
+		@Setup(Level.Invocation)
+		public void edit(GeneratedFile file) throws IOException {
+			manip = new JsonManipGsonImpl(IEditorListener.NONE, file.file);
+			manip.addElementsToUI();
+			int step = Math.max(1, 100 / editedPercent);
+			for (int line = 0; line < manip.getElementCount(); line += step) {
+				manip.setPairValue(manip.search("line=" + line).nextSetBit(0), "edited " + line);
+			}
+		}
+	}
+
+	@Benchmark
+	public void save(Edited edited, GeneratedFile file) throws IOException {
+		edited.manip.saveData(file.saveTarget());
+	}
+}
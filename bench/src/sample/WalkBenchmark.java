@@ -0,0 +1,63 @@
+package sample;
+
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Building the model for the UI (addElementsToUI): the field table, the search index, and a row for everything.
+ * The first walk builds it all from scratch, later ones (like after duplicating a line) reuse what's there.
+ * Lines are already parsed, so this is just the walk.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class WalkBenchmark {
+	/**
+	 * A parsed file nobody's walked yet, new for every call.
+	 */
+	@State(Scope.Thread)
+	public static class Unwalked {
+		BenchListener     listener;
+		JsonManipGsonImpl manip;
+
+		@Setup(Level.Invocation)
+		public void load(GeneratedFile file) throws IOException {
+			listener = new BenchListener();
+			manip = new JsonManipGsonImpl(listener, file.file);
+			listener.setJsonManip(manip);
+			ForkJoinPool pool = new ForkJoinPool(1);
+			try {
+				manip.parseElements(0, manip.getElementCount(), pool);
+			} finally {
+				pool.shutdown();
+			}
+		}
+	}
+
+	@Benchmark
+	public int firstWalk(Unwalked model) {
+		model.manip.addElementsToUI();
+		return model.listener.takeRows();
+	}
+
+	@Benchmark
+	public int walkAgain(WalkedModel model) {
+		model.manip.addElementsToUI();
+		return model.listener.takeRows();
+	}
+}
@@ -0,0 +1,26 @@
+package sample;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * A file that's loaded and on the (stand-in) UI, like one open in a tab, kept for a whole run.
+ */
+@State(Scope.Thread)
+public class WalkedModel {
+	BenchListener     listener;
+	JsonManipGsonImpl manip;
+
+	@Setup(Level.Trial)
+	public void load(GeneratedFile file) throws IOException {
+		listener = new BenchListener();
+		manip = new JsonManipGsonImpl(listener, file.file);
+		listener.setJsonManip(manip);
+		manip.addElementsToUI();
+		listener.takeRows();
+	}
+}
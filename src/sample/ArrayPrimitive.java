@@ -1,6 +1,7 @@
 package sample;
 
 import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonPrimitive;
 
 /**
@@ -11,14 +12,29 @@ public class ArrayPrimitive extends JsonEditorPrimitive {
 	final private JsonArray parent;
 	final private int index;
 
-	ArrayPrimitive(JsonPrimitive old, JsonArray parent, int index) {
-		super(old);
+	ArrayPrimitive(JsonPrimitive old, JsonArray parent, int index, int elementIndex, String path, FileString inFile) {
+		super(old, elementIndex, path, inFile);
 		this.index = index;
 		this.parent = parent;
 	}
 
 	@Override
-	void setNew(String string) {
-		parent.set(index, getNewPrimitive(string));
+	void set(JsonElement element) {
+		parent.set(index, element);
+	}
+
+	@Override
+	boolean isAt(JsonElement parent, Object slot) {
+		return this.parent == parent && slot.equals(index);
+	}
+
+	@Override
+	JsonElement getParent() {
+		return parent;
+	}
+
+	@Override
+	JsonElement getCurrent() {
+		return parent.get(index);
 	}
 }
@@ -0,0 +1,201 @@
+package sample;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+/**
+ * The editor without the editor, for scripts and build steps. Nothing in here (or the model it uses) touches
+ * JavaFX, so it runs anywhere Java does:
+ * <pre>
+ * java -cp out:lib/gson-2.7.jar sample.Batch validate src/test/resources
+ * java -cp out:lib/gson-2.7.jar sample.Batch set "**.walletId" "s/^old/new/" --jobs 8 src/test/resources
+ * </pre>
+ * Every file gets a line of json on stdout as it finishes (with --stats, that includes where its time went), then
+ * there's a line summing it all up. Exits with 0 if every file was fine, 1 if any weren't, and 2 if the arguments
+ * didn't make sense.
+ */
+public class Batch {
+	private static final String USAGE = String.join("\n",
+			"Usage: sample.Batch <command> [options] <files or folders...>",
+			"Commands:",
+			"  validate              parse every line of every file",
+			"  set <path> <value>    set every field matching the path, like wallet.ids[*] or **.walletId",
+			"                        (the value can be s/regex/replacement/ to rewrite part of it instead)",
+			"                        (a value that's meant to start with s/ goes in as \\s/...)",
+			"  duplicate <line>      add a copy of that line (counting from 0, like the editor) onto the end",
+			"Options:",
+			"  --jobs <n>            how many files to do at once (defaults to one per core)",
+			"  --dry-run             don't save anything, just say what would change",
+			"  --stats               add how long reading, parsing, walking and saving took, and how much went through",
+			"Folders are searched for .json and .jsonl files (gzipped or not), skipping hidden ones.");
+
+	final private Gson gson = new Gson();
+
+	public static void main(String[] args) {
+		System.exit(new Batch().run(args));
+	}
+
+	/**
+	 * Does what the arguments say, and returns what to exit with.
+	 */
+	int run(String[] args) {
+		List<String> arguments = new ArrayList<>();
+		int jobs = EditorSettings.getParallelism();
+		boolean save = true;
+		boolean withStats = false;
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("--jobs") && i + 1 < args.length) {
+				try {
+					jobs = Math.max(1, Integer.parseInt(args[++i]));
+				} catch (NumberFormatException e) {
+					return usage("Not a number of jobs: " + args[i]);
+				}
+			} else if (args[i].equals("--dry-run")) {
+				save = false;
+			} else if (args[i].equals("--stats")) {
+				withStats = true;
+			} else {
+				arguments.add(args[i]);
+			}
+		}
+		if (arguments.isEmpty()) {
+			return usage(null);
+		}
+
+		String command = arguments.remove(0);
+		BulkEditor.Job job;
+		try {
+			switch (command) {
+				case "validate":
+					job = (manip, pool) -> 0; //Loading it was the test
+					break;
+				case "set":
+					if (arguments.size() < 2) {
+						return usage("set needs a path and a value.");
+					}
+					BulkEdit edit = BulkEdit.parse(arguments.remove(0), arguments.remove(0));
+					job = (manip, pool) -> manip.bulkEdit(edit, pool);
+					break;
+				case "duplicate":
+					if (arguments.isEmpty()) {
+						return usage("duplicate needs a line.");
+					}
+					int line = Integer.parseInt(arguments.remove(0));
+					job = (manip, pool) -> {
+						manip.duplicateAndAddToList(line);
+						return 1;
+					};
+					break;
+				default:
+					return usage("Unknown command: " + command);
+			}
+		} catch (IllegalArgumentException e) { //Includes not being a number
+			return usage(e.getMessage());
+		}
+
+		List<Path> files;
+		try {
+			files = findFiles(arguments);
+		} catch (IOException e) {
+			return usage("Couldn't look through " + e.getMessage());
+		}
+		if (files.isEmpty()) {
+			return usage("No files to " + command + ".");
+		}
+
+		boolean printStats = withStats;
+		List<BulkEditor.Result> results = BulkEditor.run(files, job, save, jobs, result -> print(result, printStats));
+		int lines = 0, changed = 0, failed = 0;
+		for (BulkEditor.Result result : results) {
+			lines += result.getLines();
+			changed += result.getChanged();
+			if (result.getError() != null) {
+				failed++;
+			}
+		}
+		JsonObject summary = new JsonObject();
+		summary.addProperty("files", results.size());
+		summary.addProperty("lines", lines);
+		summary.addProperty("changed", changed);
+		summary.addProperty("failed", failed);
+		summary.addProperty("dryRun", !save);
+		System.out.println(gson.toJson(summary));
+		return failed > 0 ? 1 : 0;
+	}
+
+	/**
+	 * Results come in from every worker, so they take turns.
+	 */
+	private synchronized void print(BulkEditor.Result result, boolean withStats) {
+		JsonObject line = new JsonObject();
+		line.addProperty("file", result.getFile().toString());
+		if (result.getError() != null) {
+			line.addProperty("error", result.getError());
+		} else {
+			line.addProperty("lines", result.getLines());
+			line.addProperty("changed", result.getChanged());
+			line.addProperty("saved", result.isSaved());
+		}
+		if (withStats && result.getStats() != null) {
+			JsonObject stats = new JsonObject();
+			for (Map.Entry<String, Long> stat : result.getStats().entrySet()) {
+				stats.addProperty(stat.getKey(), stat.getValue());
+			}
+			line.add("stats", stats);
+		}
+		System.out.println(gson.toJson(line));
+	}
+
+	/**
+	 * Files as they are, and every resource file in folders, in order.
+	 */
+	private static List<Path> findFiles(List<String> arguments) throws IOException {
+		List<Path> files = new ArrayList<>();
+		for (String argument : arguments) {
+			Path path = Paths.get(argument).toAbsolutePath().normalize();
+			if (!Files.isDirectory(path)) {
+				files.add(path); //If it doesn't exist, its result will say so
+				continue;
+			}
+			List<Path> found = new ArrayList<>();
+			Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) {
+					boolean hidden = !directory.equals(path) && directory.getFileName().toString().startsWith(".");
+					return hidden ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+					if (attributes.isRegularFile() && ResourceIndex.isResourceFile(file.getFileName().toString())) {
+						found.add(file);
+					}
+					return FileVisitResult.CONTINUE;
+				}
+			});
+			Collections.sort(found);
+			files.addAll(found);
+		}
+		return files;
+	}
+
+	private static int usage(String problem) {
+		if (problem != null) {
+			System.err.println(problem);
+		}
+		System.err.println(USAGE);
+		return 2;
+	}
+}
@@ -0,0 +1,152 @@
+package sample;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.UnaryOperator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A change to make to every field whose path matches, on every line. Paths look like the ones fields already have
+ * ("wallet.ids[2]"), plus wildcards:
+ * <ul>
+ * <li>* - any one key, like wallet.*</li>
+ * <li>[*] - any array index, like wallet.ids[*]</li>
+ * <li>** - any number of levels, like **.walletId (which matches a top-level walletId too)</li>
+ * </ul>
+ * The change is either a new value, or s/regex/replacement/ to rewrite part of whatever's there.
+ */
+class BulkEdit {
+	final private String                pathExpression;
+	final private Pattern               path;
+	/**
+	 * Gets the field's text, returns what it should be, or null to leave it alone.
+	 */
+	final private UnaryOperator<String> transform;
+
+	BulkEdit(String pathExpression, UnaryOperator<String> transform) {
+		this.pathExpression = pathExpression;
+		this.path = compile(pathExpression);
+		this.transform = transform;
+	}
+
+	/**
+	 * Sets every matching field to the value.
+	 */
+	static BulkEdit set(String pathExpression, String value) {
+		return new BulkEdit(pathExpression, text -> value);
+	}
+
+	/**
+	 * Replaces every match of the regex in each matching field. Fields it doesn't match are left alone.
+	 */
+	static BulkEdit replace(String pathExpression, String regex, String replacement) {
+		Pattern pattern = Pattern.compile(regex);
+		return new BulkEdit(pathExpression, text -> {
+			Matcher matcher = pattern.matcher(text);
+			return matcher.find() ? matcher.replaceAll(replacement) : null;
+		});
+	}
+
+	/**
+	 * Works out which kind of edit it is from what was typed for the value: s/regex/replacement/ replaces, anything
+	 * else is just the new value. A / inside the regex or replacement needs a \ in front of it. A value that really
+	 * is meant to start with s/ needs one in front too (\s/like this), so a replace that's missing a slash doesn't
+	 * get written into every matching field as it is.
+	 * Throws IllegalArgumentException if the path or the regex is no good, or it starts with s/ but isn't a replace.
+	 */
+	static BulkEdit parse(String pathExpression, String value) {
+		if (value.startsWith("\\s/")) {
+			return set(pathExpression, value.substring(1));
+		}
+		if (value.startsWith("s/")) {
+			List<String> parts = splitOnSlashes(value.substring(2));
+			if (parts.size() != 3 || !parts.get(2).isEmpty()) {
+				throw new IllegalArgumentException("\"" + value + "\" isn't s/regex/replacement/ (a / inside either needs "
+						+ "a \\ in front). To set fields to exactly that, start it with \\s/ instead.");
+			}
+			return replace(pathExpression, parts.get(0), parts.get(1));
+		}
+		return set(pathExpression, value);
+	}
+
+	boolean matches(String fieldPath) {
+		return path.matcher(fieldPath).matches();
+	}
+
+	/**
+	 * What the field's text should become, or null if it should stay how it is.
+	 */
+	String apply(String text) {
+		String newText = transform.apply(text);
+		return newText == null || newText.equals(text) ? null : newText;
+	}
+
+	@Override
+	public String toString() {
+		return pathExpression;
+	}
+
+	/**
+	 * Turns the path expression into a regex for the whole path.
+	 */
+	private static Pattern compile(String expression) {
+		if (expression.trim().isEmpty()) {
+			throw new IllegalArgumentException("The path to edit can't be empty.");
+		}
+		StringBuilder regex = new StringBuilder();
+		int literalStart = 0;
+		for (int i = 0; i < expression.length(); ) {
+			String wildcard;
+			int length;
+			if (expression.startsWith("**.", i)) {
+				wildcard = "(?:.*\\.)?";
+				length = 3;
+			} else if (expression.startsWith("**", i)) {
+				wildcard = ".*";
+				length = 2;
+			} else if (expression.startsWith("[*]", i)) {
+				wildcard = "\\[\\d+\\]";
+				length = 3;
+			} else if (expression.charAt(i) == '*') {
+				wildcard = "[^.\\[\\]]+";
+				length = 1;
+			} else {
+				i++;
+				continue;
+			}
+			if (i > literalStart) {
+				regex.append(Pattern.quote(expression.substring(literalStart, i)));
+			}
+			regex.append(wildcard);
+			i += length;
+			literalStart = i;
+		}
+		if (literalStart < expression.length()) {
+			regex.append(Pattern.quote(expression.substring(literalStart)));
+		}
+		return Pattern.compile(regex.toString());
+	}
+
+	/**
+	 * Splits on slashes that don't have a \ in front, and takes the \ off the ones that do.
+	 */
+	private static List<String> splitOnSlashes(String text) {
+		List<String> parts = new ArrayList<>();
+		StringBuilder part = new StringBuilder();
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c == '\\' && i + 1 < text.length() && text.charAt(i + 1) == '/') {
+				part.append('/');
+				i++;
+			} else if (c == '/') {
+				parts.add(part.toString());
+				part.setLength(0);
+			} else {
+				part.append(c);
+			}
+		}
+		parts.add(part.toString());
+		return parts;
+	}
+}
@@ -0,0 +1,160 @@
+package sample;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+/**
+ * Runs a job (like a bulk edit) over files that aren't open, straight from disk and back. Files get done in
+ * parallel on one pool, and each file's lines are parsed and checked in parallel too, on another. Keeping them apart
+ * is what keeps memory down: a worker waiting on its file's lines can only ever help with more lines, never steal
+ * another whole file, so only one file per file worker is loaded at a time, however many files there are.
+ * Files that end up with changes are saved the same way the editor saves, so only the changed lines get rewritten.
+ */
+class BulkEditor {
+	private BulkEditor() {
+	}
+
+	/**
+	 * Something to do to each file once it's loaded and walked. Returns how many fields or lines it changed.
+	 */
+	interface Job {
+		int run(IJsonManip manip, ForkJoinPool pool) throws IOException;
+	}
+
+	/**
+	 * Edits and saves every file, and returns how each one went, in the same order.
+	 */
+	static List<Result> run(List<Path> files, BulkEdit edit, int parallelism) {
+		return run(files, (manip, pool) -> manip.bulkEdit(edit, pool), true, parallelism, result -> {
+		});
+	}
+
+	/**
+	 * Runs the job on every file, saving the ones it changed if we're saving, and returns how each one went in the
+	 * same order. Each result also goes to finished as soon as it's done, from whichever worker did it.
+	 */
+	static List<Result> run(List<Path> files, Job job, boolean save, int parallelism, Consumer<Result> finished) {
+		ForkJoinPool filePool = new ForkJoinPool(parallelism);
+		ForkJoinPool linePool = new ForkJoinPool(parallelism);
+		List<Result> results = new ArrayList<>(files.size());
+		List<JobFile> tasks = new ArrayList<>(files.size());
+		for (Path file : files) {
+			Result result = new Result(file);
+			results.add(result);
+			tasks.add(new JobFile(job, save, linePool, result, finished));
+		}
+		try {
+			filePool.invoke(new RecursiveAction() {
+				@Override
+				protected void compute() {
+					invokeAll(tasks);
+				}
+			});
+		} finally {
+			filePool.shutdown();
+			linePool.shutdown();
+		}
+		return results;
+	}
+
+	/**
+	 * How many lines a file has and how many fields (or lines) changed, or why it couldn't be done.
+	 */
+	static class Result {
+		final private Path              file;
+		private       int               lines;
+		private       int               changed;
+		private       boolean           saved;
+		private       String            error;
+		private       Map<String, Long> stats;
+
+		Result(Path file) {
+			this.file = file;
+		}
+
+		Path getFile() {
+			return file;
+		}
+
+		int getLines() {
+			return lines;
+		}
+
+		int getChanged() {
+			return changed;
+		}
+
+		boolean isSaved() {
+			return saved;
+		}
+
+		/**
+		 * Null if it went fine.
+		 */
+		String getError() {
+			return error;
+		}
+
+		/**
+		 * Timings and counts for the file (see EditorStats), or null if it couldn't even be read.
+		 */
+		Map<String, Long> getStats() {
+			return stats;
+		}
+	}
+
+	private static class JobFile extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		final private Job              job;
+		final private boolean          save;
+		/**
+		 * Where the file's lines get parsed and checked. Never the pool this is running on, see the class comment.
+		 */
+		final private ForkJoinPool     lines;
+		final private Result           result;
+		final private Consumer<Result> finished;
+
+		JobFile(Job job, boolean save, ForkJoinPool lines, Result result, Consumer<Result> finished) {
+			this.job = job;
+			this.save = save;
+			this.lines = lines;
+			this.result = result;
+			this.finished = finished;
+		}
+
+		@Override
+		protected void compute() {
+			JsonManipGsonImpl manip = null;
+			try {
+				manip = new JsonManipGsonImpl(IEditorListener.NONE, result.file);
+				if (manip.isEmpty()) {
+					result.error = "Didn't find any json objects in file.";
+				} else {
+					result.lines = manip.getElementCount();
+					manip.parseElements(0, result.lines, lines);
+					manip.addElementsToUI(); //No UI, this just builds the field table
+					result.changed = job.run(manip, lines);
+					result.lines = manip.getElementCount(); //The job might have added some
+					if (save && result.changed > 0) {
+						manip.saveData(result.file);
+						result.saved = true;
+					}
+				}
+			} catch (Exception e) {
+				result.changed = 0;
+				result.error = e.toString();
+			}
+			if (manip != null) {
+				result.stats = manip.getStats().snapshot();
+			}
+			finished.accept(result);
+		}
+	}
+}
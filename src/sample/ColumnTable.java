@@ -0,0 +1,382 @@
+package sample;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+
+/**
+ * A whole file of json lines held a column at a time, for files where every line has the same keys. Every primitive
+ * path (like "wallet.ids[2]") is a column, found as the lines are read, so the schema comes out of the same single
+ * pass. Each path is only held once. Columns of whole numbers, decimals or booleans keep them in primitive arrays,
+ * and strings are codes into a dictionary shared by every column, so a value repeated on every line is only held
+ * once. Scanning or sorting a column never has to look at anything else.
+ * Only for reading, and read from the file as it is on disk, not from what's loaded: edits only show up in it once
+ * they're saved, and reading it never touches them. A file opened straight into the table never parses its lines
+ * into objects or walks them, so this is the only copy of its values on the heap.
+ */
+class ColumnTable {
+	/**
+	 * What a column holds. A column whose values don't agree on a type is STRING, with every value as it was written.
+	 */
+	enum Kind {EMPTY, BOOLEAN, LONG, DOUBLE, STRING}
+
+	/**
+	 * More columns than this and it isn't really a table anymore. The rest of the paths get left out.
+	 */
+	static final int MAX_COLUMNS = 1024;
+
+	final private List<Column>         columns    = new ArrayList<>();
+	final private Map<String, Column>  byPath     = new HashMap<>();
+	final private List<String>         dictionary = new ArrayList<>();
+	final private Map<String, Integer> codes      = new HashMap<>();
+	/**
+	 * How many rows the columns' arrays have room for.
+	 */
+	private       int                  capacity   = 16;
+	private       int                  rowCount;
+	/**
+	 * How many values didn't get a column because there were too many already.
+	 */
+	private       int                  leftOut;
+
+	private ColumnTable() {
+	}
+
+	/**
+	 * Reads every line that starts with "{" (same as the editor, so row numbers are the editor's line numbers), one
+	 * value at a time, without ever building the objects.
+	 */
+	static ColumnTable read(Path filePath) throws IOException {
+		LineIndex lineIndex = LineIndex.map(filePath);
+		ColumnTable table = new ColumnTable();
+		for (int line = 0; line < lineIndex.size(); line++) {
+			if (lineIndex.startsWith(line, '{')) {
+				table.addRow(lineIndex, line);
+			}
+		}
+		return table;
+	}
+
+	int getRowCount() {
+		return rowCount;
+	}
+
+	int getColumnCount() {
+		return columns.size();
+	}
+
+	/**
+	 * The column's path, which is also its header.
+	 */
+	String getPath(int column) {
+		return columns.get(column).path;
+	}
+
+	int getLeftOut() {
+		return leftOut;
+	}
+
+	/**
+	 * The value the way the editor would show it, "null" for a null, or null if the row doesn't have one.
+	 */
+	String getText(int row, int column) {
+		return columns.get(column).getText(row);
+	}
+
+	/**
+	 * Orders two rows by a column, for sorting. Rows without a value come first, then nulls, then the values
+	 * themselves, compared as whatever type the column is.
+	 */
+	int compare(int column, int rowA, int rowB) {
+		Column c = columns.get(column);
+		int a = c.rank(rowA), b = c.rank(rowB);
+		if (a != b || a < 2) {
+			return Integer.compare(a, b);
+		}
+		switch (c.kind) {
+			case BOOLEAN:
+				return Boolean.compare(c.trues.get(rowA), c.trues.get(rowB));
+			case LONG:
+				return Long.compare(c.longs[rowA], c.longs[rowB]);
+			case DOUBLE:
+				return Double.compare(c.doubles[rowA], c.doubles[rowB]);
+			default:
+				return dictionary.get(c.codes[rowA]).compareTo(dictionary.get(c.codes[rowB]));
+		}
+	}
+
+	/**
+	 * Roughly how many bytes of heap it's holding: every column's arrays, and each dictionary string once.
+	 */
+	long estimateHeapSize() {
+		long bytes = (long) dictionary.size() * 64;
+		for (String value : dictionary) {
+			bytes += value.length() * 2L;
+		}
+		for (Column column : columns) {
+			bytes += column.estimateHeapSize();
+		}
+		return bytes;
+	}
+
+	private void addRow(LineIndex lineIndex, int line) throws IOException {
+		if (rowCount == capacity) {
+			capacity = rowCount + (rowCount >> 1);
+		}
+		JsonReader json = new JsonReader(new StringReader(lineIndex.getLine(line)));
+		json.setLenient(true); //Same as the editor's parser
+		try {
+			readObject(json, "");
+		} catch (IOException | IllegalStateException | NumberFormatException e) {
+			throw new JsonParseException("Line " + lineIndex.getLineNumber(line) + " of the file: " + e.getMessage(), e);
+		}
+		rowCount++;
+	}
+
+	private void readObject(JsonReader json, String path) throws IOException {
+		json.beginObject();
+		while (json.hasNext()) {
+			String key = json.nextName();
+			readValue(json, path.isEmpty() ? key : path + "." + key);
+		}
+		json.endObject();
+	}
+
+	private void readValue(JsonReader json, String path) throws IOException {
+		switch (json.peek()) {
+			case BEGIN_OBJECT:
+				readObject(json, path);
+				return;
+			case BEGIN_ARRAY:
+				json.beginArray();
+				for (int i = 0; json.hasNext(); i++) {
+					readValue(json, path + "[" + i + "]");
+				}
+				json.endArray();
+				return;
+			default:
+		}
+		Column column = column(path);
+		if (column == null) {
+			json.skipValue();
+			leftOut++;
+			return;
+		}
+		switch (json.peek()) {
+			case NULL:
+				json.nextNull();
+				column.setNull(rowCount);
+				break;
+			case BOOLEAN:
+				column.setBoolean(rowCount, json.nextBoolean());
+				break;
+			case NUMBER:
+				column.setNumber(rowCount, json.nextString()); //The number as it was written
+				break;
+			default:
+				column.setString(rowCount, json.nextString());
+		}
+	}
+
+	/**
+	 * The column for the path, made if it's new. Null if there are too many already.
+	 */
+	private Column column(String path) {
+		Column column = byPath.get(path);
+		if (column == null && columns.size() < MAX_COLUMNS) {
+			column = new Column(path);
+			byPath.put(path, column);
+			columns.add(column);
+		}
+		return column;
+	}
+
+	private int code(String value) {
+		Integer code = codes.get(value);
+		if (code == null) {
+			code = dictionary.size();
+			dictionary.add(value);
+			codes.put(value, code);
+		}
+		return code;
+	}
+
+	/**
+	 * One path's values, by row. Only the array for its kind is ever made. When a value doesn't fit the kind it has
+	 * so far, everything it had gets turned into strings, which is always exact, since numbers only go in the
+	 * primitive arrays if they'd come back out written the same way.
+	 */
+	private class Column {
+		final private String   path;
+		private       Kind     kind    = Kind.EMPTY;
+		final private BitSet   present = new BitSet();
+		final private BitSet   nulls   = new BitSet();
+		private       BitSet   trues;
+		private       long[]   longs;
+		private       double[] doubles;
+		private       int[]    codes;
+
+		Column(String path) {
+			this.path = path;
+		}
+
+		void setNull(int row) {
+			present.set(row);
+			nulls.set(row);
+		}
+
+		void setBoolean(int row, boolean value) {
+			if (becomes(Kind.BOOLEAN)) {
+				present.set(row);
+				nulls.clear(row);
+				trues.set(row, value);
+			} else {
+				setString(row, Boolean.toString(value));
+			}
+		}
+
+		void setNumber(int row, String text) {
+			Kind numberKind = numberKind(text);
+			if (numberKind != null && becomes(numberKind)) {
+				present.set(row);
+				nulls.clear(row);
+				if (numberKind == Kind.LONG) {
+					longs = grow(longs, row);
+					longs[row] = Long.parseLong(text);
+				} else {
+					doubles = grow(doubles, row);
+					doubles[row] = Double.parseDouble(text);
+				}
+			} else {
+				setString(row, text);
+			}
+		}
+
+		void setString(int row, String value) {
+			if (kind != Kind.STRING) {
+				toStrings();
+			}
+			present.set(row);
+			nulls.clear(row);
+			codes = grow(codes, row);
+			codes[row] = code(value);
+		}
+
+		String getText(int row) {
+			if (!present.get(row)) {
+				return null;
+			}
+			if (nulls.get(row)) {
+				return "null";
+			}
+			switch (kind) {
+				case BOOLEAN:
+					return trues.get(row) ? "true" : "false";
+				case LONG:
+					return Long.toString(longs[row]);
+				case DOUBLE:
+					return Double.toString(doubles[row]);
+				default:
+					return dictionary.get(codes[row]);
+			}
+		}
+
+		/**
+		 * 0 without a value, 1 for null, 2 for anything else.
+		 */
+		int rank(int row) {
+			return !present.get(row) ? 0 : nulls.get(row) ? 1 : 2;
+		}
+
+		long estimateHeapSize() {
+			long bytes = 64 + present.size() / 8 + nulls.size() / 8;
+			bytes += trues == null ? 0 : trues.size() / 8;
+			bytes += longs == null ? 0 : longs.length * 8L;
+			bytes += doubles == null ? 0 : doubles.length * 8L;
+			bytes += codes == null ? 0 : codes.length * 4L;
+			return bytes;
+		}
+
+		/**
+		 * Whether the column can hold that kind of value, setting it up to if it's still empty.
+		 */
+		private boolean becomes(Kind newKind) {
+			if (kind == Kind.EMPTY) {
+				kind = newKind;
+				if (newKind == Kind.BOOLEAN) {
+					trues = new BitSet();
+				}
+			}
+			return kind == newKind;
+		}
+
+		private void toStrings() {
+			int[] newCodes = new int[capacity];
+			for (int row = present.nextSetBit(0); row >= 0; row = present.nextSetBit(row + 1)) {
+				if (!nulls.get(row)) {
+					newCodes[row] = code(getText(row));
+				}
+			}
+			kind = Kind.STRING;
+			codes = newCodes;
+			trues = null;
+			longs = null;
+			doubles = null;
+		}
+	}
+
+	/**
+	 * LONG or DOUBLE if the number would be written the same way coming back out of one, otherwise null, so it
+	 * gets kept as it was written instead (like 1.50, or 1e3).
+	 */
+	private static Kind numberKind(String text) {
+		try {
+			if (Long.toString(Long.parseLong(text)).equals(text)) {
+				return Kind.LONG;
+			}
+		} catch (NumberFormatException e) {
+			//Not a whole number, or too big for one
+		}
+		try {
+			if (Double.toString(Double.parseDouble(text)).equals(text)) {
+				return Kind.DOUBLE;
+			}
+		} catch (NumberFormatException e) {
+			//Not a number Java can read at all
+		}
+		return null;
+	}
+
+	/**
+	 * Arrays start out with room for as many rows as there's capacity for, and keep up with it.
+	 */
+	private long[] grow(long[] array, int row) {
+		if (array == null) {
+			return new long[capacity];
+		}
+		return row < array.length ? array : Arrays.copyOf(array, capacity);
+	}
+
+	private double[] grow(double[] array, int row) {
+		if (array == null) {
+			return new double[capacity];
+		}
+		return row < array.length ? array : Arrays.copyOf(array, capacity);
+	}
+
+	private int[] grow(int[] array, int row) {
+		if (array == null) {
+			return new int[capacity];
+		}
+		return row < array.length ? array : Arrays.copyOf(array, capacity);
+	}
+}
@@ -0,0 +1,47 @@
+package sample;
+
+import java.util.List;
+import java.util.function.Function;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.collections.FXCollections;
+import javafx.scene.Scene;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.stage.Stage;
+
+/**
+ * A window listing where two lines differ: one row per field that's different, or per object or array that only
+ * one of them has.
+ */
+class CompareView {
+	private CompareView() {
+	}
+
+	static void show(Stage owner, String title, String leftName, String rightName,
+			List<StructureHashes.Difference> differences) {
+		TableView<StructureHashes.Difference> table = new TableView<>(FXCollections.observableArrayList(differences));
+		table.getColumns().add(column("path", StructureHashes.Difference::getPath));
+		table.getColumns().add(column(leftName, StructureHashes.Difference::getLeft));
+		table.getColumns().add(column(rightName, StructureHashes.Difference::getRight));
+		table.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
+
+		Stage stage = new Stage();
+		stage.initOwner(owner);
+		stage.setTitle(title);
+		stage.setScene(new Scene(table, 800, 400));
+		stage.show();
+	}
+
+	/**
+	 * Something that isn't there at all shows up as "(missing)", so it doesn't look like an empty string.
+	 */
+	private static TableColumn<StructureHashes.Difference, String> column(String header,
+			Function<StructureHashes.Difference, String> text) {
+		TableColumn<StructureHashes.Difference, String> column = new TableColumn<>(header);
+		column.setCellValueFactory(cell -> {
+			String value = text.apply(cell.getValue());
+			return new ReadOnlyStringWrapper(value == null ? "(missing)" : value);
+		});
+		return column;
+	}
+}
@@ -6,16 +6,42 @@ import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
-
-import javafx.geometry.Insets;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntFunction;
+import javafx.beans.property.ReadOnlyLongProperty;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
+import javafx.geometry.Side;
 import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.ContextMenu;
 import javafx.scene.control.Label;
-import javafx.scene.control.ScrollPane;
+import javafx.scene.control.ListView;
+import javafx.scene.control.MenuItem;
+import javafx.scene.control.ProgressIndicator;
+import javafx.scene.control.Tab;
+import javafx.scene.control.TabPane;
+import javafx.scene.control.TableCell;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
 import javafx.scene.control.TextField;
-import javafx.scene.layout.HBox;
-import javafx.scene.layout.VBox;
+import javafx.scene.control.Tooltip;
+import javafx.scene.control.TreeItem;
+import javafx.scene.control.TreeView;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyCodeCombination;
+import javafx.scene.input.KeyCombination;
+import javafx.scene.input.KeyEvent;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 
@@ -23,42 +49,205 @@ import javafx.stage.Stage;
  * Should primarily handle UI logic.
  */
 public class Controller {
+	private static final KeyCombination UNDO_KEYS     = new KeyCodeCombination(KeyCode.Z, KeyCombination.SHORTCUT_DOWN);
+	private static final KeyCombination REDO_KEYS     = new KeyCodeCombination(KeyCode.Y, KeyCombination.SHORTCUT_DOWN);
+	private static final KeyCombination REDO_KEYS_ALT = new KeyCodeCombination(KeyCode.Z, KeyCombination.SHORTCUT_DOWN, KeyCombination.SHIFT_DOWN);
+	/**
+	 * What the list shows when there aren't any tabs open.
+	 */
+	private static final ObservableList<EditorRow> NO_ROWS = FXCollections.emptyObservableList();
+	private static final ObservableList<Integer>   NO_LINES = FXCollections.emptyObservableList();
+	/**
+	 * How many files the path field suggests at once.
+	 */
+	private static final int                       SUGGESTIONS = 12;
 
-	public  VBox       boxOfFields;
-	public  ScrollPane scrollFields;
-	public  TextField  filePathField;
-	public  Label      notificationField;
-	public  Button     saveButton;
-	public  Button     discardButton;
-	private IJsonManip jsonManip;
-	private Path       filePath;
-	private Stage      stage;
-	private Map<Integer, TextField> textFields = new HashMap<>();
+	public  TabPane             fileTabs;
+	public  ListView<EditorRow> listOfFields;
+	/**
+	 * The other way of showing a file, one line per row and one column per field, for when every line has the same
+	 * fields. Each row is just the line number, and the cells look their values up in the tab's ColumnTable.
+	 */
+	public  TableView<Integer>  tableOfLines;
+	public  CheckBox            tableMode;
+	/**
+	 * And another, one collapsed row per line that opens up into its objects, arrays and values. Only what's open
+	 * has any tree items (or fields looked up) at all.
+	 */
+	public  TreeView<String>    treeOfLines;
+	public  CheckBox            treeMode;
+	public  TextField           filePathField;
+	public  TextField           searchField;
+	public  TextField           bulkPathField;
+	public  TextField           bulkValueField;
+	public  Label               searchStatus;
+	public  Label               notificationField;
+	public  Label               statsField;
+	public  Button              saveButton;
+	public  Button              discardButton;
+	public  Button              undoButton;
+	public  Button              redoButton;
+	private Stage               stage;
+	/**
+	 * Closed tabs, so going back to a file we just had open doesn't mean loading it all again.
+	 */
+	final private DocumentCache cache = new DocumentCache(EditorSettings.getCacheBudget());
+	/**
+	 * Watches open files for something else writing to them, if we're set to reload when that happens.
+	 */
+	private       FileWatcher   watcher;
+	/**
+	 * The project's resource files, once they've been crawled. Null until then, or if there's no project root set.
+	 */
+	private       ResourceIndex resourceIndex;
+	final private ContextMenu   suggestions  = new ContextMenu();
+	/**
+	 * Set while we're the ones putting a path in the path field, so it doesn't suggest anything.
+	 */
+	private       boolean       fillingPath;
+	/**
+	 * The bulk edit going through files on disk, while there is one.
+	 */
+	private       Task<?>       bulkEditing;
+	/**
+	 * Fields matching the last search in this tab, which one we're on, and how many lines they're spread over.
+	 */
+	private       BitSet        matches      = new BitSet();
+	private       int           currentMatch = -1;
+	private       int           matchingLines;
+	/**
+	 * Whatever's in the table now, so showing it again doesn't mean building all the columns again.
+	 */
+	private       ColumnTable   shownColumns;
+	/**
+	 * The line picked to be compared with whichever one gets picked next, or -1.
+	 */
+	private       int           comparingLine = -1;
+	/**
+	 * Typing goes through here, so the model and the buttons only catch up once a frame.
+	 */
+	final private EditPipeline  edits         = new EditPipeline(this::showEdits);
 
 	//And now I'm beginning to understand how feature creep happens.
 
 	//TODO: make a way to delete a field. This would be super useful in trimming excessive json files.
-	//TODO: make tabs. Could have multiple files open at once.
-	//TODO: make a way to compare two lines?
 	//TODO: add a way to introduce entirely new fields to an object/file
-	//TODO: add a way to page through the various lines of a file instead of scrolling to each one
 	//TODO: pipe dream -> a small button for each object to copy the object's json to clipboard
-	//TODO: extra ridiculous pipe dream -> make an expandable/collapsable tree to make things presented even more super clearly
 
 	/**
-	 * Tries to load the json objects from file, and updates the UI for possible failures or for success.
-	 * Won't load if there is unsaved modified data.
+	 * Called by the FXMLLoader once the fields are injected.
 	 */
-	public void retrieveJsonData() {
-		setNotification("");
+	public void initialize() {
+		listOfFields.setItems(NO_ROWS);
+		listOfFields.setCellFactory(listView -> new EditorRowCell(this));
+		//Filter, so this gets to it before the text fields' own undo does
+		listOfFields.addEventFilter(KeyEvent.KEY_PRESSED, e -> {
+			if (UNDO_KEYS.match(e)) {
+				undo();
+				e.consume();
+			} else if (REDO_KEYS.match(e) || REDO_KEYS_ALT.match(e)) {
+				redo();
+				e.consume();
+			}
+		});
+		fileTabs.getSelectionModel().selectedItemProperty().addListener((observable, oldTab, newTab) -> showTab());
+		treeOfLines.setShowRoot(false);
+		treeOfLines.setCellFactory(treeView -> new JsonTreeCell(this));
+		//Double-clicking a line in the table goes to it in the editor
+		tableOfLines.setOnMouseClicked(e -> {
+			Integer row = tableOfLines.getSelectionModel().getSelectedItem();
+			if (e.getClickCount() == 2 && row != null) {
+				tableMode.setSelected(false);
+				toggleTable();
+				goToLine(currentTab(), row);
+			}
+		});
+		if (EditorSettings.isAutoReload()) {
+			try {
+				watcher = new FileWatcher(this::fileChanged);
+			} catch (IOException e) {
+				setNotification("Can't watch files for changes: " + e);
+			}
+		}
+		//Only suggest while they're typing, not when we fill it in for them
+		filePathField.textProperty().addListener((observable, oldText, text) -> {
+			if (filePathField.isFocused() && !fillingPath) {
+				suggestFiles(text);
+			}
+		});
+		filePathField.focusedProperty().addListener((observable, wasFocused, focused) -> {
+			if (!focused) {
+				suggestions.hide();
+			}
+		});
+		indexResources();
+	}
 
-		if (savingRequired()) {
-			setNotification("You must save the current file or discard changes before opening a new file.");
+	/**
+	 * Crawls the project root in the background, if there is one. Only files that changed since last time get read.
+	 */
+	private void indexResources() {
+		Path root = EditorSettings.getProjectRoot();
+		if (root == null) {
 			return;
 		}
+		Task<ResourceIndex> indexing = new Task<ResourceIndex>() {
+			@Override
+			protected ResourceIndex call() throws Exception {
+				return ResourceIndex.build(root, EditorSettings.getParallelism());
+			}
+		};
+		indexing.setOnSucceeded(e -> {
+			resourceIndex = indexing.getValue();
+			if (currentTab() == null) {
+				setNotification("Found " + resourceIndex.size() + " resource files under " + root + " ("
+						+ resourceIndex.getRescanned() + " new or changed).");
+			}
+		});
+		indexing.setOnFailed(e -> setNotification("Couldn't index " + root + ": " + indexing.getException()));
+		Thread thread = new Thread(indexing, "Indexing " + root);
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Drops down the files matching what's been typed. Picking one opens it.
+	 */
+	private void suggestFiles(String text) {
+		if (resourceIndex == null) {
+			return;
+		}
+		List<Path> matches = resourceIndex.suggest(text, SUGGESTIONS);
+		if (matches.isEmpty()) {
+			suggestions.hide();
+			return;
+		}
+		suggestions.getItems().clear();
+		for (Path match : matches) {
+			MenuItem item = new MenuItem(resourceIndex.getRoot().relativize(match).toString());
+			item.setOnAction(e -> {
+				fillPath(match.toString());
+				retrieveJsonData();
+			});
+			suggestions.getItems().add(item);
+		}
+		if (!suggestions.isShowing()) {
+			suggestions.show(filePathField, Side.BOTTOM, 0, 0);
+		}
+	}
+
+	/**
+	 * Opens the file in a new tab, and updates the UI for possible failures or for success. If it's already open,
+	 * we just switch to it, and if we closed it recently (and it hasn't changed since) it comes back from the cache.
+	 * If there's no such path but exactly one resource file goes by that name (or has it as a key), we open that.
+	 */
+	public void retrieveJsonData() {
+		setNotification("");
+		suggestions.hide();
 
+		Path filePath;
 		try {
-			filePath = Paths.get(filePathField.getText());
+			filePath = Paths.get(filePathField.getText()).toAbsolutePath().normalize();
 		} catch (InvalidPathException e) {
 			setNotification("Invalid path: " + e.getMessage());
 			return;
@@ -66,27 +255,45 @@ public class Controller {
 
 		//Make sure file exists
 		if (Files.notExists(filePath)) {
-			setNotification("Resource file doesn't exist.");
-			return;
+			Path found = resourceIndex == null ? null : resourceIndex.find(filePathField.getText());
+			if (found == null) {
+				setNotification("Resource file doesn't exist.");
+				return;
+			}
+			filePath = found;
+			fillPath(found.toString());
+		}
+
+		for (Tab open : fileTabs.getTabs()) {
+			if (((EditorTab) open.getUserData()).getFilePath().equals(filePath)) {
+				fileTabs.getSelectionModel().select(open);
+				return;
+			}
 		}
 
-		//Make sure we can get the data out
+		DocumentCache.Key key;
 		try {
-			jsonManip = new JsonManipGsonImpl(this, filePath);
+			key = DocumentCache.Key.of(filePath);
 		} catch (IOException e) {
 			setNotification("Failed to retrieve data from file: " + e);
 			return;
 		}
 
-		//Make sure we actually got something
-		if (jsonManip.isEmpty()) {
-			setNotification("Didn't find any json objects in file.");
-			return;
+		//Load it in the background if we have to, it'll tell us when it has something
+		EditorTab tab = cache.take(key);
+		if (tab == null) {
+			tab = new EditorTab(this, filePath, key);
+			tab.load(!treeMode.isSelected() && !tableMode.isSelected()); //Rows only if they're going to be shown
+		}
+		fileTabs.getTabs().add(tab.getTab());
+		fileTabs.getSelectionModel().select(tab.getTab());
+		if (watcher != null) {
+			try {
+				watcher.watch(filePath);
+			} catch (IOException e) {
+				setNotification("Can't watch " + filePath.getFileName() + " for changes: " + e);
+			}
 		}
-
-		//Start working through the fields, and label the lines we're looking at
-		boxOfFields.getChildren().clear();
-		jsonManip.addElementsToUI();
 	}
 
 	/**
@@ -97,153 +304,799 @@ public class Controller {
 		fileChooser.setTitle("Open Resource File");
 		File file = fileChooser.showOpenDialog(stage);
 		if (file != null) {
-			if (!savingRequired()) {
-				filePathField.setText(file.getAbsolutePath()); //Don't want to change path if not going to use it
-			}
+			fillPath(file.getAbsolutePath());
 			retrieveJsonData();
 		}
 	}
 
 	/**
-	 * Saves each element to file on its own line, and removes the css highlight
-	 * from the modified fields.
+	 * Runs the query in the search bar and jumps to the first match. A plain number jumps to that line instead.
+	 */
+	public void search() {
+		edits.flush();
+		EditorTab tab = currentTab();
+		IJsonManip jsonManip = currentManip();
+		clearSearch();
+		String query = searchField.getText().trim();
+		if (jsonManip == null || query.isEmpty()) {
+			return;
+		}
+		if (treeMode.isSelected()) {
+			searchStatus.setText("Searching only works in the list, the tree only has the lines that were opened.");
+			return;
+		}
+		if (query.matches("\\d{1,9}")) {
+			goToLine(tab, Integer.parseInt(query));
+			return;
+		}
+
+		try {
+			matches = jsonManip.search(query);
+		} catch (IllegalArgumentException e) {
+			searchStatus.setText(e.getMessage());
+			return;
+		}
+		if (matches.isEmpty()) {
+			searchStatus.setText("No matches.");
+			return;
+		}
+		int lastElement = -1;
+		for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+			int element = jsonManip.getFieldElement(i);
+			if (element != lastElement) { //Each line's fields are next to each other, so its matches are together
+				matchingLines++;
+				lastElement = element;
+			}
+		}
+		showMatch(matches.nextSetBit(0));
+	}
+
+	/**
+	 * Jumps to the next match, wrapping around to the first.
+	 */
+	public void nextMatch() {
+		if (!matches.isEmpty()) {
+			int next = matches.nextSetBit(currentMatch + 1);
+			showMatch(next >= 0 ? next : matches.nextSetBit(0));
+		}
+	}
+
+	/**
+	 * Jumps to the previous match, wrapping around to the last.
+	 */
+	public void previousMatch() {
+		if (!matches.isEmpty()) {
+			int previous = currentMatch > 0 ? matches.previousSetBit(currentMatch - 1) : -1;
+			showMatch(previous >= 0 ? previous : matches.length() - 1);
+		}
+	}
+
+	/**
+	 * Makes the bulk edit to the file on screen. It's one change, so one undo takes it all back, and it still
+	 * needs saving like any other change.
+	 */
+	public void bulkEditThisFile() {
+		edits.flush();
+		EditorTab tab = currentTab();
+		BulkEdit edit = readBulkEdit();
+		if (tab == null || edit == null) {
+			return;
+		}
+		if (tab.isLoading()) {
+			setNotification("Wait for " + tab.getTab().getText() + " to finish loading first.");
+			return;
+		}
+		int changed = bulkEditOpen(Collections.singletonList(tab), edit);
+		setNotification("Changed " + changed + " fields matching " + edit + ".");
+	}
+
+	/**
+	 * Makes the bulk edit to every open file (they still need saving), and every other resource file in the
+	 * project, which get edited and saved in the background. How many fields changed in each file shows up when
+	 * hovering over the notification. Like editing just the one file, it won't start while a tab is still loading.
+	 */
+	public void bulkEditAllFiles() {
+		BulkEdit edit = readBulkEdit();
+		if (edit == null) {
+			return;
+		}
+		if (bulkEditing != null) {
+			setNotification("Still going through the files from the last bulk edit.");
+			return;
+		}
+		edits.flush();
+		List<EditorTab> open = new ArrayList<>();
+		Set<Path> openPaths = new HashSet<>();
+		for (Tab fileTab : fileTabs.getTabs()) {
+			EditorTab tab = (EditorTab) fileTab.getUserData();
+			if (tab.isLoading()) { //Its file would get skipped, it's neither in memory yet nor left to do on disk
+				setNotification("Wait for " + tab.getTab().getText() + " to finish loading first.");
+				return;
+			}
+			openPaths.add(tab.getFilePath());
+			open.add(tab);
+		}
+		int openChanged = bulkEditOpen(open, edit);
+		List<Path> files = new ArrayList<>();
+		if (resourceIndex != null) {
+			for (Path file : resourceIndex.getFiles()) {
+				if (!openPaths.contains(file)) {
+					files.add(file); //Open ones were done in memory, so unsaved edits don't get trampled
+				}
+			}
+		}
+		if (files.isEmpty()) {
+			setNotification("Changed " + openChanged + " fields matching " + edit + " in open files.");
+			return;
+		}
+
+		setNotification("Bulk editing " + files.size() + " files...");
+		Task<List<BulkEditor.Result>> editing = new Task<List<BulkEditor.Result>>() {
+			@Override
+			protected List<BulkEditor.Result> call() throws Exception {
+				return BulkEditor.run(files, edit, EditorSettings.getParallelism());
+			}
+		};
+		editing.setOnSucceeded(e -> {
+			bulkEditing = null;
+			bulkEditFinished(edit, openChanged, editing.getValue());
+		});
+		editing.setOnFailed(e -> {
+			bulkEditing = null;
+			setNotification("Bulk edit failed: " + editing.getException());
+		});
+		bulkEditing = editing;
+		Thread thread = new Thread(editing, "Bulk editing");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * The bulk edit from the fields under the search bar, or null (with a notification) if it's no good.
+	 */
+	private BulkEdit readBulkEdit() {
+		try {
+			return BulkEdit.parse(bulkPathField.getText().trim(), bulkValueField.getText());
+		} catch (IllegalArgumentException e) {
+			setNotification("Can't bulk edit: " + e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Makes the edit in each tab, and returns how many fields changed all together.
+	 */
+	private int bulkEditOpen(List<EditorTab> tabs, BulkEdit edit) {
+		int changed = 0;
+		ForkJoinPool pool = new ForkJoinPool(EditorSettings.getParallelism());
+		try {
+			for (EditorTab tab : tabs) {
+				changed += tab.getJsonManip().bulkEdit(edit, pool);
+			}
+		} finally {
+			pool.shutdown();
+		}
+		clearSearch(); //Values changed, so what matched might not anymore
+		updateAfterEdit(false);
+		return changed;
+	}
+
+	/**
+	 * Sums it all up in the notification, with each file's count in its tooltip.
+	 */
+	private void bulkEditFinished(BulkEdit edit, int openChanged, List<BulkEditor.Result> results) {
+		int changed = 0, changedFiles = 0, failed = 0;
+		StringBuilder details = new StringBuilder();
+		for (BulkEditor.Result result : results) {
+			if (result.getError() != null) {
+				failed++;
+				details.append(result.getFile()).append(": ").append(result.getError()).append('\n');
+			} else if (result.getChanged() > 0) {
+				changed += result.getChanged();
+				changedFiles++;
+				details.append(result.getFile()).append(": ").append(result.getChanged()).append('\n');
+			}
+		}
+		setNotification("Changed " + changed + " fields matching " + edit + " in " + changedFiles + " of "
+				+ results.size() + " files" + (failed > 0 ? ", " + failed + " couldn't be edited" : "")
+				+ (openChanged > 0 ? ". Open files had " + openChanged + " changed, and still need saving." : "."));
+		if (details.length() > 0) {
+			notificationField.setTooltip(new Tooltip(details.toString().trim()));
+		}
+	}
+
+	/**
+	 * Saves the changed elements to file, and removes the css highlight from the modified fields.
+	 * What's in memory already matches the file afterwards, so there's no need to load it again.
 	 */
 	public void saveObjects() {
+		edits.flush();
+		EditorTab tab = currentTab();
+		if (tab == null || tab.isLoading()) {
+			return; //The rest of the file isn't here yet
+		}
+
 		//Save to file
 		try {
-			jsonManip.saveData(filePath);
+			tab.save();
 		} catch (IOException e) {
 			setNotification("Failed to save file: " + e);
 			return;
 		}
 
-		//Remove css highlight
-		textFields.values().parallelStream().
-				forEach(field -> field.getStyleClass().remove("modified"));
+		//Remove css highlight, the saved fields aren't modified anymore
+		redrawRows();
+		refreshTable(tab);
 
 		validateAllFields();
-		retrieveJsonData();
 	}
 
 	/**
 	 * Reset all fields to their original values.
 	 */
 	public void discardChanges() {
-		for (Map.Entry<Integer, TextField> entry : textFields.entrySet()) {
-			String originalText = jsonManip.getOriginalVal(entry.getKey());
-			if (originalText == null) {
-				originalText = "null";
+		edits.flush();
+		updateAfterEdit(currentManip().discardChanges());
+	}
+
+	/**
+	 * Takes back the last change, whether that was typing in a field or duplicating a line.
+	 */
+	public void undo() {
+		edits.flush(); //The edit being typed is the last change
+		IJsonManip jsonManip = currentManip();
+		if (jsonManip != null && jsonManip.canUndo()) {
+			updateAfterEdit(jsonManip.undo());
+		}
+	}
+
+	/**
+	 * Does the last undone change again.
+	 */
+	public void redo() {
+		edits.flush();
+		IJsonManip jsonManip = currentManip();
+		if (jsonManip != null && jsonManip.canRedo()) {
+			updateAfterEdit(jsonManip.redo());
+		}
+	}
+
+	/**
+	 * Duplicates the line. The copy's rows get added on the end, and nothing else has to change.
+	 */
+	void duplicateLine(int index) {
+		if (isLoading()) {
+			return; //Lines can't move around while they're still being added
+		}
+		edits.flush();
+		currentManip().duplicateAndAddToList(index);
+		syncTreeLines();
+		validateAllFields();
+	}
+
+	/**
+	 * The first line picked gets remembered, and the next one picked gets compared with it. Picking the same line
+	 * twice compares it with what's on disk.
+	 */
+	void compareLine(int index) {
+		EditorTab tab = currentTab();
+		if (isLoading()) {
+			return;
+		}
+		if (comparingLine < 0) {
+			comparingLine = index;
+			setNotification("Comparing line " + index + ". Pick another line to compare it with, or the same one"
+					+ " again to compare it with what's saved.");
+			return;
+		}
+		int first = comparingLine;
+		comparingLine = -1;
+		edits.flush();
+		List<StructureHashes.Difference> differences;
+		String other;
+		try {
+			if (first == index) {
+				differences = tab.getJsonManip().compareWithDisk(index, tab.getFilePath());
+				other = "on disk";
+			} else {
+				differences = tab.getJsonManip().compareLines(first, index);
+				other = "line " + index;
 			}
-			entry.getValue().setText(originalText);
+		} catch (IOException | RuntimeException e) { //Includes the line on disk not being json
+			setNotification("Couldn't compare: " + e);
+			return;
+		}
+		if (differences.isEmpty()) {
+			setNotification("Line " + first + " and " + other + " are the same.");
+			return;
 		}
-		boxOfFields.getChildren().clear();
-		jsonManip.discardElementsChanges();
+		setNotification("Line " + first + " and " + other + " differ in " + differences.size()
+				+ (differences.size() == 1 ? " place." : " places."));
+		CompareView.show(stage, tab.getTab().getText() + ": line " + first + " and " + other,
+				"line " + first, other, differences);
 	}
 
 	/**
-	 * Inserts a label with bold css class to the UI, so we can help identify where objects begin/end.
+	 * Called by a field's cell whenever its text changes. It goes into the model on the next pulse.
 	 */
-	void addObjectLabel(String labelText) {
-		boxOfFields.getChildren().add(makeLabelBox(labelText));
+	void fieldEdited(int index, String newValue) {
+		edits.fieldEdited(currentManip(), index, newValue);
 	}
 
 	/**
-	 * Inserts a label with bold css class to the UI, so we can help identify where objects begin/end.
-	 * Also adds a button to duplicate the object.
+	 * Opens a window with the whole of a large value in it, since its cell only shows the start.
 	 */
-	void addObjectLabelWithDuplicateButton(String labelText, int index) {
-		HBox labelBox = makeLabelBox(labelText);
-		labelBox.setSpacing(10);
-		labelBox.setPadding(new Insets(2, 0, 0, 0));
-		Button duplicateButton = new Button("Duplicate Line");
-		duplicateButton.setOnAction(e -> {
-			//TODO: fix modified fields losing modified status when a line is duplicated
-			jsonManip.duplicateAndAddToList(index);
-			boxOfFields.getChildren().clear();
-			jsonManip.addElementsToUI();
+	void editLargeValue(int index, String label) {
+		IJsonManip jsonManip = currentManip();
+		LargeValueEditor.show(stage, label, getFieldText(index), newValue -> {
+			if (jsonManip == currentManip()) { //Not if they've switched tabs in the meantime
+				edits.fieldEdited(jsonManip, index, newValue);
+				redrawRows();
+			}
 		});
-		labelBox.getChildren().add(duplicateButton);
-		HBox.setMargin(duplicateButton, new Insets(-2, 0, 0, 0));
-		boxOfFields.getChildren().add(labelBox);
 	}
 
 	/**
-	 * Add each value and set the onAction so we can save to file, and make the value-changes save
-	 * to java object whenever they're changed. We also make modified fields blue until they're saved to file.
+	 * Puts whatever's been typed but hasn't gone into the model yet in now, for something about to use it.
 	 */
-	void addPair(String key, String value, int index) {
-		VBox pairBox = new VBox();
-		pairBox.setSpacing(4);
-		Label fieldLabel = new Label(key);
-		TextField textField = new TextField(value);
-		textField.setMinWidth(890);
-		textField.setOnAction(e -> saveObjects()); //If you hit enter, save
-		textField.textProperty().addListener((observable, oldValue, newValue) -> {
-			checkModified(textField, index);
-			validateAllFields();
-		});
-		textFields.put(index, textField);
-		pairBox.getChildren().addAll(fieldLabel, textField);
-		boxOfFields.getChildren().add(pairBox);
+	void flushEdits() {
+		edits.flush();
 	}
 
 	/**
-	 * Used for showing the find-file dialog.
+	 * Goes up every time typing (or anything else) has been caught up with, for rows that need redrawing then.
 	 */
-	void setStage(Stage stage) {
-		this.stage = stage;
+	ReadOnlyLongProperty editsPublishedProperty() {
+		return edits.publishedProperty();
+	}
+
+	/**
+	 * What a field's cell should show, including typing that hasn't gone into the model yet.
+	 */
+	String getFieldText(int index) {
+		String pending = edits.getPendingText(currentManip(), index);
+		return pending != null ? pending : currentManip().getFieldText(index);
+	}
+
+	/**
+	 * Modified fields are blue until they're saved to file.
+	 */
+	boolean isFieldModified(int index) {
+		return currentManip().isFieldModified(index);
+	}
+
+	/**
+	 * The match we last jumped to gets highlighted.
+	 */
+	boolean isCurrentMatch(int index) {
+		return index == currentMatch;
+	}
+
+	/**
+	 * If the tab on screen is still loading its file. Saving and duplicating wait until it's done.
+	 */
+	boolean isLoading() {
+		EditorTab tab = currentTab();
+		return tab != null && tab.isLoading();
 	}
 
 	/**
-	 * Checks if the text field has been modified, and if it has, gives it the "modified" status.
+	 * A tab has all its rows in, so everything that had to wait for that can go.
 	 */
-	private void checkModified(TextField textField, int index) {
-		//Check if values were equal, or if the text is "null" and the original value was a null value
-		String currentValue = textField.getText(), originalValue = jsonManip.getOriginalVal(index);
-		if (!(currentValue.equals("null") && null == originalValue) && !currentValue.equals(originalValue)) {
-			//If the value is indeed changed
-			if (!textField.getStyleClass().contains("modified")) {
-				textField.getStyleClass().add("modified");
+	void loadFinished(EditorTab tab) {
+		if (tab.isSelected()) {
+			notificationField.setGraphic(null);
+			setNotification("");
+			syncTreeLines();
+			redrawRows(); //Duplicate buttons were disabled while loading, and the tree can edit every line now
+			if (listOfFields.isVisible()) {
+				addRows(tab); //Loaded for the tree, but it got switched to the list in the meantime
 			}
-		} else {
-			textField.getStyleClass().remove("modified");
 		}
-		jsonManip.setPairValue(index, currentValue);
 	}
 
-	private HBox makeLabelBox(String labelText) {
-		HBox labelBox = new HBox();
-		Label openObjectLabel = new Label(labelText);
-		openObjectLabel.getStyleClass().add("ParentObject");
-		labelBox.getChildren().add(openObjectLabel);
-		return labelBox;
+	/**
+	 * Nothing useful came out of the file, so the tab goes away and we say why.
+	 */
+	void loadFailed(EditorTab tab, String notification) {
+		fileTabs.getTabs().remove(tab.getTab());
+		stopWatching(tab);
+		setNotification(notification);
+	}
+
+	/**
+	 * The tab is gone, so stop loading it, or keep it around in case it gets opened again.
+	 */
+	void tabClosed(EditorTab tab) {
+		stopWatching(tab);
+		if (tab.isLoading()) {
+			tab.cancelLoad();
+			return; //Half a file isn't worth keeping
+		}
+		try {
+			if (tab.getJsonManip() != null && tab.getKey().equals(DocumentCache.Key.of(tab.getFilePath()))) {
+				cache.put(tab.getKey(), tab);
+			}
+		} catch (IOException e) {
+			//It's gone or we can't read it, either way it'll have to be loaded again
+		}
+	}
+
+	/**
+	 * Something wrote to a file in a folder we're watching. If it's one of ours, its tab gets to catch up.
+	 */
+	private void fileChanged(Path path) {
+		for (Tab open : fileTabs.getTabs()) {
+			EditorTab tab = (EditorTab) open.getUserData();
+			if (tab.getFilePath().equals(path)) {
+				tab.fileChanged();
+			}
+		}
 	}
 
 	/**
-	 * Disable/enable buttons/fields based on whether or not saving is required.
+	 * Puts a path in the path field without it suggesting anything.
+	 */
+	private void fillPath(String path) {
+		fillingPath = true;
+		try {
+			filePathField.setText(path);
+		} finally {
+			fillingPath = false;
+		}
+	}
+
+	private void stopWatching(EditorTab tab) {
+		if (watcher != null) {
+			watcher.unwatch(tab.getFilePath());
+		}
+	}
+
+	/**
+	 * Used for showing the find-file dialog.
+	 */
+	void setStage(Stage stage) {
+		this.stage = stage;
+	}
+
+	/**
+	 * Disable/enable buttons/fields based on whether or not saving is required. Happens on the next pulse, once,
+	 * however many times it's asked for before then.
 	 */
 	void validateAllFields() {
-		boolean dataRetrieved = !jsonManip.isEmpty();
+		edits.requestPublish();
+	}
+
+	/**
+	 * What validateAllFields does, once typing has been caught up with.
+	 */
+	private void showEdits() {
+		IJsonManip jsonManip = currentManip();
+		showStats(jsonManip);
+		boolean dataRetrieved = jsonManip != null && !jsonManip.isEmpty();
 		saveButton.setVisible(dataRetrieved);
 		discardButton.setVisible(dataRetrieved);
-		boolean savingRequired = savingRequired();
-		saveButton.setDisable(!savingRequired); //Note the !
+		undoButton.setVisible(dataRetrieved);
+		redoButton.setVisible(dataRetrieved);
+		if (!dataRetrieved) {
+			return;
+		}
+		boolean savingRequired = jsonManip.isDirty();
+		saveButton.setDisable(!savingRequired || isLoading()); //Note the !
 		discardButton.setDisable(!savingRequired); //Note the !
+		undoButton.setDisable(!jsonManip.canUndo());
+		redoButton.setDisable(!jsonManip.canRedo());
+	}
+
+	/**
+	 * The tab on screen, or null if there aren't any open.
+	 */
+	private EditorTab currentTab() {
+		Tab selected = fileTabs.getSelectionModel().getSelectedItem();
+		return selected == null ? null : (EditorTab) selected.getUserData();
+	}
+
+	/**
+	 * The json for the tab on screen, or null if there's nothing loaded there yet.
+	 */
+	private IJsonManip currentManip() {
+		EditorTab tab = currentTab();
+		return tab == null ? null : tab.getJsonManip();
+	}
+
+	/**
+	 * Puts the selected tab's rows on screen, along with its path and (if it's still loading) its progress.
+	 */
+	private void showTab() {
+		edits.flush(); //Goes to the tab they were typed in, not this one
+		EditorTab tab = currentTab();
+		clearSearch();
+		comparingLine = -1; //Line numbers from some other file
+		listOfFields.setItems(tab == null ? NO_ROWS : tab.getRows());
+		showView();
+		notificationField.setGraphic(null);
+		setNotification("");
+		if (tab != null) {
+			fillPath(tab.getFilePath().toString());
+			if (tab.isLoading()) {
+				showProgress(tab);
+			}
+		}
+		validateAllFields();
+	}
+
+	/**
+	 * A little spinner next to the notification, while the tab loads.
+	 */
+	private void showProgress(EditorTab tab) {
+		ProgressIndicator progress = new ProgressIndicator();
+		progress.progressProperty().bind(tab.getLoader().progressProperty());
+		progress.setMaxSize(16, 16);
+		notificationField.setGraphic(progress);
+		setNotification(tab.getLoader().getMessage());
+	}
+
+	/**
+	 * The list is being shown, so the tab needs its rows, if it was loaded without them.
+	 */
+	private void addRows(EditorTab tab) {
+		if (tab.addRows()) {
+			showProgress(tab);
+			validateAllFields(); //Saving waits until the rows are in
+		}
 	}
 
 	/**
-	 * Returns true if any fields have been edited but not saved.
+	 * Switches between showing the tab on screen as rows and as a table.
 	 */
-	private boolean savingRequired() {
-		for (TextField textField : textFields.values()) {
-			if (textField.getStyleClass().contains("modified")) {
-				return true;
+	public void toggleTable() {
+		if (tableMode.isSelected()) {
+			treeMode.setSelected(false);
+		}
+		showView();
+	}
+
+	/**
+	 * Switches between showing the tab on screen as rows and as a tree.
+	 */
+	public void toggleTree() {
+		if (treeMode.isSelected()) {
+			tableMode.setSelected(false);
+		}
+		showView();
+	}
+
+	/**
+	 * Shows the tab on screen whichever way is picked: as a table, a tree, or otherwise as rows (which get added
+	 * now, if it was loaded without them). Whichever ones aren't showing let go of what they had.
+	 */
+	private void showView() {
+		EditorTab tab = currentTab();
+		boolean asTable = tableMode.isSelected() && tab != null;
+		boolean asTree = treeMode.isSelected() && tab != null;
+		listOfFields.setVisible(!asTable && !asTree);
+		listOfFields.setManaged(!asTable && !asTree);
+		tableOfLines.setVisible(asTable);
+		tableOfLines.setManaged(asTable);
+		treeOfLines.setVisible(asTree);
+		treeOfLines.setManaged(asTree);
+		if (tab != null && !asTable && !asTree) {
+			addRows(tab);
+		}
+		if (asTable) {
+			showTable(tab);
+		} else {
+			shownColumns = null; //Nothing's holding onto it but the tab, then
+			tableOfLines.getColumns().clear();
+			tableOfLines.setItems(NO_LINES);
+		}
+		if (asTree) {
+			showTree();
+		} else {
+			treeOfLines.setRoot(null);
+		}
+	}
+
+	/**
+	 * The tab's lines moved around (it was reloaded), so if it's on screen as a tree, the tree starts over.
+	 */
+	void refreshTree(EditorTab tab) {
+		if (tab == currentTab() && treeMode.isSelected()) {
+			showTree();
+		}
+	}
+
+	/**
+	 * One collapsed item per line, which only gets parsed once it's drawn. Expanding one makes items for what's
+	 * in it (and walks the line, if its fields are needed), and collapsing it lets them go again.
+	 */
+	private void showTree() {
+		TreeItem<String> root = new TreeItem<>();
+		//Expanding and collapsing bubble up to here, so every item doesn't need its own listener
+		root.addEventHandler(TreeItem.<String>branchExpandedEvent(), e -> {
+			if (e.getTreeItem() instanceof JsonTreeItem) {
+				((JsonTreeItem) e.getTreeItem()).expanded();
+			}
+		});
+		root.addEventHandler(TreeItem.<String>branchCollapsedEvent(), e -> {
+			if (e.getTreeItem() instanceof JsonTreeItem) {
+				((JsonTreeItem) e.getTreeItem()).collapsed();
+			}
+		});
+		root.setExpanded(true);
+		treeOfLines.setRoot(root);
+		syncTreeLines(); //If the loader has the file yet, otherwise once it's done
+	}
+
+	/**
+	 * Lines only get added or taken away on the end, so that's all the tree has to do too.
+	 */
+	private void syncTreeLines() {
+		IJsonManip jsonManip = currentManip();
+		TreeItem<String> root = treeOfLines.getRoot();
+		if (root == null || jsonManip == null) {
+			return;
+		}
+		int lines = jsonManip.getElementCount();
+		ObservableList<TreeItem<String>> items = root.getChildren();
+		if (items.size() > lines) {
+			items.remove(lines, items.size());
+		} else if (items.size() < lines) {
+			String fileName = currentTab().getTab().getText();
+			List<TreeItem<String>> added = new ArrayList<>(lines - items.size());
+			for (int i = items.size(); i < lines; i++) {
+				added.add(new JsonTreeItem(jsonManip, fileName + "[" + i + "]", i));
 			}
+			items.addAll(added);
+		}
+	}
+
+	/**
+	 * The tab's table is ready, or what it has is out of date. If it's on screen, it gets shown again.
+	 */
+	void refreshTable(EditorTab tab) {
+		if (tab == currentTab() && tableMode.isSelected()) {
+			showTable(tab);
+		}
+	}
+
+	/**
+	 * Puts the tab's lines in the table: a column for the line number, then one for each field, in the order they
+	 * first showed up. Sorting by a column compares its values as what they are (numbers as numbers), without
+	 * turning them into text. If the tab hasn't read its table yet, it says so until it has. The table is the file
+	 * as it was saved, so if the tab has unsaved edits, it says that too.
+	 */
+	private void showTable(EditorTab tab) {
+		ColumnTable columns = tab.getColumns();
+		if (columns == shownColumns && columns != null) {
+			return;
+		}
+		shownColumns = columns;
+		tableOfLines.getColumns().clear();
+		if (columns == null) {
+			tableOfLines.setItems(NO_LINES);
+			tableOfLines.setPlaceholder(new Label("Reading " + tab.getTab().getText() + "..."));
+			return;
+		}
+		tableOfLines.getColumns().add(tableColumn("line", Integer::compare, Integer::toString));
+		for (int i = 0; i < columns.getColumnCount(); i++) {
+			int column = i;
+			tableOfLines.getColumns().add(tableColumn(columns.getPath(column),
+					(a, b) -> columns.compare(column, a, b), row -> columns.getText(row, column)));
+		}
+		List<Integer> lines = new ArrayList<>(columns.getRowCount());
+		for (int row = 0; row < columns.getRowCount(); row++) {
+			lines.add(row);
+		}
+		tableOfLines.setItems(FXCollections.observableArrayList(lines));
+		if (tab.isDirty()) { //They're still there, and still need saving, they're just not in the table yet
+			setNotification("The table shows " + tab.getTab().getText() + " as it was saved, without unsaved edits.");
+		} else if (columns.getLeftOut() > 0) {
+			setNotification("Only the first " + ColumnTable.MAX_COLUMNS + " fields get columns, "
+					+ columns.getLeftOut() + " values were left out.");
+		}
+	}
+
+	private static TableColumn<Integer, Integer> tableColumn(String header, Comparator<Integer> order,
+			IntFunction<String> text) {
+		TableColumn<Integer, Integer> column = new TableColumn<>(header);
+		column.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(cell.getValue()));
+		column.setCellFactory(owner -> new TableCell<Integer, Integer>() {
+			@Override
+			protected void updateItem(Integer row, boolean empty) {
+				super.updateItem(row, empty);
+				setText(empty || row == null ? null : text.apply(row));
+			}
+		});
+		column.setComparator(order);
+		return column;
+	}
+
+	/**
+	 * Lines that were added or removed have already had their rows added or removed, so the ones on screen just
+	 * need redrawing. Search results might point at fields that are gone, though.
+	 */
+	private void updateAfterEdit(boolean structural) {
+		if (structural) {
+			clearSearch();
+			syncTreeLines();
+		}
+		redrawRows();
+		validateAllFields();
+	}
+
+	/**
+	 * Whatever's on screen shows the values as they are now. Only the cells on screen get drawn again.
+	 */
+	private void redrawRows() {
+		listOfFields.refresh();
+		if (treeMode.isSelected()) {
+			treeOfLines.refresh();
+		}
+	}
+
+	/**
+	 * Scrolls the match into view and highlights it. Only the rows on screen get drawn, wherever it is. A match
+	 * on a line that's still waiting for its rows stays where it is.
+	 */
+	private void showMatch(int index) {
+		currentMatch = index;
+		int row = currentTab().getFieldRow(index);
+		if (row >= 0) {
+			listOfFields.scrollTo(row);
+		}
+		listOfFields.refresh();
+		searchStatus.setText("Match " + matches.get(0, index + 1).cardinality() + " of " + matches.cardinality()
+				+ ", in " + matchingLines + (matchingLines == 1 ? " line." : " lines."));
+	}
+
+	private void goToLine(EditorTab tab, int line) {
+		int row = tab.getElementRow(line);
+		if (row < 0) {
+			searchStatus.setText(tab.isLoading() ? "Line " + line + " hasn't loaded yet." : "There's no line " + line + ".");
+			return;
+		}
+		listOfFields.scrollTo(row);
+		searchStatus.setText("Line " + line + ".");
+	}
+
+	/**
+	 * Forgets the last search, for when the rows it found aren't where they were anymore.
+	 */
+	void clearSearch() {
+		boolean hadMatch = currentMatch >= 0;
+		matches = new BitSet();
+		currentMatch = -1;
+		matchingLines = 0;
+		searchStatus.setText("");
+		if (hadMatch) {
+			listOfFields.refresh(); //Take the highlight off
+		}
+	}
+
+	/**
+	 * Where the file's time has gone, small and out of the way. Hovering shows every number.
+	 */
+	private void showStats(IJsonManip jsonManip) {
+		if (jsonManip == null) {
+			statsField.setText("");
+			statsField.setTooltip(null);
+			return;
+		}
+		EditorStats stats = jsonManip.getStats();
+		statsField.setText(stats.summary());
+		StringBuilder details = new StringBuilder();
+		for (Map.Entry<String, Long> stat : stats.snapshot().entrySet()) {
+			details.append(stat.getKey()).append(": ").append(stat.getValue()).append('\n');
+		}
+		if (statsField.getTooltip() == null) {
+			statsField.setTooltip(new Tooltip());
 		}
-		return jsonManip != null && jsonManip.haveElementsChanged(); //Gets called during initialization
+		statsField.getTooltip().setText(details.toString().trim());
 	}
 
 	void setNotification(String notification) {
 		notificationField.setText(notification);
+		notificationField.setTooltip(null);
 	}
 }
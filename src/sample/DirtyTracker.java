@@ -0,0 +1,69 @@
+package sample;
+
+import java.util.BitSet;
+
+/**
+ * Keeps track of what's changed since loading or the last save, so asking "does this need saving?" doesn't mean
+ * going through every field.
+ */
+class DirtyTracker {
+	/**
+	 * Field table indexes of the fields that don't match their original value.
+	 */
+	final private BitSet modifiedFields = new BitSet();
+	private       int    modifiedCount;
+	/**
+	 * How many edits that add or remove elements are currently applied. Undoing one takes it back off,
+	 * so this is exact rather than a guess from the list size.
+	 */
+	private       int    structuralEdits;
+
+	/**
+	 * Flips the field's bit, keeping the count in step.
+	 */
+	void setFieldModified(int index, boolean modified) {
+		if (modifiedFields.get(index) != modified) {
+			modifiedFields.set(index, modified);
+			modifiedCount += modified ? 1 : -1;
+		}
+	}
+
+	boolean isFieldModified(int index) {
+		return modifiedFields.get(index);
+	}
+
+	/**
+	 * The next modified field at or after the index, or -1 if there aren't any more.
+	 */
+	int nextModifiedField(int from) {
+		return modifiedFields.nextSetBit(from);
+	}
+
+	void structureChanged() {
+		structuralEdits++;
+	}
+
+	void structureRestored() {
+		structuralEdits--;
+	}
+
+	/**
+	 * If any elements have been added or removed.
+	 */
+	boolean haveElementsChanged() {
+		return structuralEdits != 0;
+	}
+
+	boolean isDirty() {
+		return modifiedCount > 0 || haveElementsChanged();
+	}
+
+	/**
+	 * Nothing is changed anymore, like after a save.
+	 */
+	void clear() {
+		modifiedFields.clear();
+		modifiedCount = 0;
+		structuralEdits = 0;
+	}
+}
@@ -0,0 +1,109 @@
+package sample;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Tabs that have been closed, kept around parsed so opening the same file again is instant. They're kept in the
+ * order they were closed, and the oldest get dropped once they take up more (roughly) than the heap budget.
+ * If a file changed on disk since, its key won't match anymore, so it just gets loaded fresh.
+ */
+class DocumentCache {
+	final private LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>();
+	final private long                      budget;
+	private       long                      used;
+
+	DocumentCache(long budget) {
+		this.budget = budget;
+	}
+
+	/**
+	 * Takes the tab for that version of the file out of the cache, or returns null if we don't have it.
+	 */
+	EditorTab take(Key key) {
+		Entry entry = entries.remove(key);
+		if (entry == null) {
+			return null;
+		}
+		used -= entry.weight;
+		return entry.tab;
+	}
+
+	/**
+	 * Keeps a closed tab, then drops the least recently closed ones until we're back under budget.
+	 * One that's bigger than the whole budget just doesn't get kept.
+	 */
+	void put(Key key, EditorTab tab) {
+		take(key);
+		long weight = tab.estimateHeapSize();
+		if (weight > budget) {
+			return;
+		}
+		entries.put(key, new Entry(tab, weight));
+		used += weight;
+		Iterator<Entry> eldest = entries.values().iterator();
+		while (used > budget) {
+			used -= eldest.next().weight;
+			eldest.remove();
+		}
+	}
+
+	/**
+	 * Which version of which file a document was loaded from. Anything writing to the file changes the size or
+	 * the modified time, so a match means what we parsed is still what's on disk.
+	 */
+	static final class Key {
+		final private Path path;
+		final private long size;
+		final private long modified;
+
+		private Key(Path path, long size, long modified) {
+			this.path = path;
+			this.size = size;
+			this.modified = modified;
+		}
+
+		/**
+		 * The key for the file as it is on disk right now.
+		 */
+		static Key of(Path filePath) throws IOException {
+			Path path = filePath.toAbsolutePath().normalize();
+			BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+			return new Key(path, attributes.size(), attributes.lastModifiedTime().toMillis());
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key key = (Key) o;
+			return size == key.size && modified == key.modified && path.equals(key.path);
+		}
+
+		@Override
+		public int hashCode() {
+			int result = path.hashCode();
+			result = 31 * result + Long.hashCode(size);
+			result = 31 * result + Long.hashCode(modified);
+			return result;
+		}
+	}
+
+	private static class Entry {
+		final private EditorTab tab;
+		final private long      weight;
+
+		Entry(EditorTab tab, long weight) {
+			this.tab = tab;
+			this.weight = weight;
+		}
+	}
+}
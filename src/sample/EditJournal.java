@@ -0,0 +1,101 @@
+package sample;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Every change made since loading or the last save, in order, so they can be undone and redone.
+ * Discarding is just undoing all of it.
+ */
+class EditJournal {
+	/**
+	 * One change to the document, which knows how to take itself back and do itself again.
+	 */
+	interface Edit {
+		void undo();
+
+		void redo();
+
+		/**
+		 * If this edit adds or removes elements, rather than just changing a value.
+		 */
+		boolean isStructural();
+
+		/**
+		 * Tries to fold the next edit into this one (like typing another character in the same field),
+		 * so the journal doesn't grow by one entry per keystroke.
+		 */
+		default boolean absorb(Edit next) {
+			return false;
+		}
+	}
+
+	final private List<Edit> edits = new ArrayList<>();
+	/**
+	 * Everything before this has been done, everything from here on has been undone.
+	 */
+	private       int        position;
+
+	/**
+	 * Adds an edit that's already been applied. Anything that was undone can't be redone anymore.
+	 */
+	void record(Edit edit) {
+		edits.subList(position, edits.size()).clear();
+		if (position > 0 && edits.get(position - 1).absorb(edit)) {
+			return;
+		}
+		edits.add(edit);
+		position++;
+	}
+
+	boolean canUndo() {
+		return position > 0;
+	}
+
+	boolean canRedo() {
+		return position < edits.size();
+	}
+
+	/**
+	 * Takes back the last edit and returns it, or null if there's nothing to undo.
+	 */
+	Edit undo() {
+		if (!canUndo()) {
+			return null;
+		}
+		Edit edit = edits.get(--position);
+		edit.undo();
+		return edit;
+	}
+
+	/**
+	 * Does the last undone edit again and returns it, or null if there's nothing to redo.
+	 */
+	Edit redo() {
+		if (!canRedo()) {
+			return null;
+		}
+		Edit edit = edits.get(position++);
+		edit.redo();
+		return edit;
+	}
+
+	/**
+	 * Undoes everything, newest first. Returns true if any of it added or removed elements.
+	 */
+	boolean undoAll() {
+		boolean structural = false;
+		while (canUndo()) {
+			structural |= undo().isStructural();
+		}
+		return structural;
+	}
+
+	/**
+	 * Forgets everything, like after a save, since the file is the new starting point.
+	 */
+	void clear() {
+		edits.clear();
+		position = 0;
+	}
+}
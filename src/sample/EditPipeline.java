@@ -0,0 +1,102 @@
+package sample;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javafx.animation.AnimationTimer;
+import javafx.beans.property.ReadOnlyLongProperty;
+import javafx.beans.property.ReadOnlyLongWrapper;
+
+/**
+ * Edits typed into fields wait here until the next pulse, so however many keys get pressed in a frame, the model
+ * only hears about each field once. Everything worked out from the model afterwards (buttons, stats, modified
+ * highlights) only gets worked out once a frame too, however many things asked for it. Anything that reads the
+ * model or changes it some other way (saving, undoing, searching...) flushes first, so it never sees it behind.
+ */
+class EditPipeline {
+	/**
+	 * The latest text for each field, in the order they were first typed in.
+	 */
+	final private Map<Integer, String> pending   = new LinkedHashMap<>();
+	final private Runnable             publish;
+	/**
+	 * Goes up every time the model's been caught up with and published, for rows that need to redraw then.
+	 */
+	final private ReadOnlyLongWrapper  published = new ReadOnlyLongWrapper();
+	final private AnimationTimer       pulse     = new AnimationTimer() {
+		@Override
+		public void handle(long now) {
+			publishNow();
+		}
+	};
+	/**
+	 * Whose fields the pending edits are for.
+	 */
+	private       IJsonManip           manip;
+	private       boolean              scheduled;
+
+	/**
+	 * publish gets run (on the UI thread) at most once a pulse, after any pending edits have gone in.
+	 */
+	EditPipeline(Runnable publish) {
+		this.publish = publish;
+	}
+
+	/**
+	 * Holds onto the field's new text until the next pulse. Typing more into it before then just replaces it.
+	 */
+	void fieldEdited(IJsonManip manip, int index, String text) {
+		if (this.manip != manip) {
+			flush(); //Some other tab's, they go in first
+		}
+		this.manip = manip;
+		pending.put(index, text);
+		requestPublish();
+	}
+
+	/**
+	 * What's been typed into the field but hasn't gone in yet, or null if there isn't anything.
+	 */
+	String getPendingText(IJsonManip manip, int index) {
+		return manip == this.manip ? pending.get(index) : null;
+	}
+
+	/**
+	 * Puts every pending edit in now, for something that's about to use the model. Publishing still waits for the
+	 * pulse, along with whatever else happens before then.
+	 */
+	void flush() {
+		if (pending.isEmpty()) {
+			return;
+		}
+		IJsonManip target = manip;
+		manip = null;
+		for (Map.Entry<Integer, String> edit : pending.entrySet()) {
+			target.setPairValue(edit.getKey(), edit.getValue());
+		}
+		pending.clear();
+		requestPublish();
+	}
+
+	/**
+	 * Something changed that the UI needs to catch up with. It will on the next pulse, once for everything asked
+	 * for until then.
+	 */
+	void requestPublish() {
+		if (!scheduled) {
+			scheduled = true;
+			pulse.start();
+		}
+	}
+
+	ReadOnlyLongProperty publishedProperty() {
+		return published.getReadOnlyProperty();
+	}
+
+	private void publishNow() {
+		flush();
+		pulse.stop();
+		scheduled = false;
+		publish.run();
+		published.set(published.get() + 1);
+	}
+}
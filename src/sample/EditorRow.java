@@ -0,0 +1,59 @@
+package sample;
+
+/**
+ * One row of the editor: where an object opens, one of its fields, or where it closes. The list view only makes
+ * nodes for the rows you can see, so these are all that's kept around for the rest. Everything else about a field
+ * lives in the field table.
+ */
+class EditorRow {
+	enum Kind {OBJECT_OPEN, FIELD, OBJECT_CLOSE}
+
+	final private Kind   kind;
+	final private String label;
+	/**
+	 * For a field, its index in the field table. For an object opening, which element gets duplicated by its
+	 * button, or -1 if it doesn't get one.
+	 */
+	final private int    index;
+
+	private EditorRow(Kind kind, String label, int index) {
+		this.kind = kind;
+		this.label = label;
+		this.index = index;
+	}
+
+	static EditorRow objectOpen(String label) {
+		return new EditorRow(Kind.OBJECT_OPEN, label, -1);
+	}
+
+	static EditorRow objectOpenWithDuplicate(String label, int elementIndex) {
+		return new EditorRow(Kind.OBJECT_OPEN, label, elementIndex);
+	}
+
+	static EditorRow objectClose(String label) {
+		return new EditorRow(Kind.OBJECT_CLOSE, label, -1);
+	}
+
+	static EditorRow field(String key, int index) {
+		return new EditorRow(Kind.FIELD, key, index);
+	}
+
+	Kind getKind() {
+		return kind;
+	}
+
+	String getLabel() {
+		return label;
+	}
+
+	int getIndex() {
+		return index;
+	}
+
+	/**
+	 * Whether this is an object opening that can be duplicated.
+	 */
+	boolean hasDuplicateButton() {
+		return kind == Kind.OBJECT_OPEN && index >= 0;
+	}
+}
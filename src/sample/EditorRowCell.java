@@ -0,0 +1,132 @@
+package sample;
+
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.WeakChangeListener;
+import javafx.geometry.Insets;
+import javafx.scene.Node;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.TextField;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+
+/**
+ * Shows one EditorRow. The list view only makes enough of these to fill the screen and hands them different rows
+ * as you scroll, so the nodes are built once here and just get new text.
+ */
+class EditorRowCell extends ListCell<EditorRow> {
+	private static final int PREVIEW_CHARS = 200;
+
+	final private Controller controller;
+	final private HBox       labelBox        = new HBox();
+	final private Label      objectLabel     = new Label();
+	final private Button     duplicateButton = new Button("Duplicate Line");
+	final private Button     compareButton   = new Button("Compare");
+	final private VBox       pairBox         = new VBox();
+	final private Label      fieldLabel      = new Label();
+	final private TextField  textField       = new TextField();
+	/**
+	 * Shown instead of the text field for a value too long to lay out, with a button to edit it in its own window.
+	 */
+	final private HBox       previewBox      = new HBox();
+	final private Label      previewLabel    = new Label();
+	final private Button     editButton      = new Button("Edit...");
+	/**
+	 * Set while we're putting a row's value into the text field, so that doesn't count as an edit.
+	 */
+	private       boolean    updating;
+	/**
+	 * Typing only reaches the model once a pulse, so that's when the highlight can catch up. Held here, since the
+	 * controller only holds onto it weakly, so cells the list throws away don't stick around.
+	 */
+	final private ChangeListener<Number> editsPublished = (observable, oldCount, count) -> {
+		if (getItem() != null && getItem().getKind() == EditorRow.Kind.FIELD) {
+			showModified(getItem().getIndex());
+		}
+	};
+
+	EditorRowCell(Controller controller) {
+		this.controller = controller;
+		objectLabel.getStyleClass().add("ParentObject");
+		labelBox.getChildren().add(objectLabel);
+		duplicateButton.setOnAction(e -> controller.duplicateLine(getItem().getIndex()));
+		compareButton.setOnAction(e -> controller.compareLine(getItem().getIndex()));
+		HBox.setMargin(duplicateButton, new Insets(-2, 0, 0, 0));
+		HBox.setMargin(compareButton, new Insets(-2, 0, 0, 0));
+
+		pairBox.setSpacing(4);
+		textField.setMinWidth(890);
+		textField.setOnAction(e -> controller.saveObjects()); //If you hit enter, save
+		textField.textProperty().addListener((observable, oldValue, newValue) -> {
+			if (!updating && getItem() != null) {
+				controller.fieldEdited(getItem().getIndex(), newValue);
+			}
+		});
+		pairBox.getChildren().addAll(fieldLabel, textField);
+
+		previewLabel.setMaxWidth(800);
+		editButton.setOnAction(e -> controller.editLargeValue(getItem().getIndex(), getItem().getLabel()));
+		previewBox.setSpacing(10);
+		previewBox.getChildren().addAll(previewLabel, editButton);
+		controller.editsPublishedProperty().addListener(new WeakChangeListener<>(editsPublished));
+	}
+
+	@Override
+	protected void updateItem(EditorRow row, boolean empty) {
+		super.updateItem(row, empty);
+		setText(null);
+		if (empty || row == null) {
+			setGraphic(null);
+			return;
+		}
+
+		if (row.getKind() == EditorRow.Kind.FIELD) {
+			fieldLabel.setText(row.getLabel());
+			fieldLabel.getStyleClass().remove("searchMatch");
+			if (controller.isCurrentMatch(row.getIndex())) {
+				fieldLabel.getStyleClass().add("searchMatch");
+			}
+			String text = controller.getFieldText(row.getIndex());
+			if (text.length() >= EditorSettings.getLargeValueChars()) {
+				previewLabel.setText(text.substring(0, Math.min(PREVIEW_CHARS, text.length())) + "... (" + text.length() + " characters)");
+				pairBox.getChildren().set(1, previewBox);
+			} else {
+				updating = true;
+				textField.setText(text);
+				updating = false;
+				pairBox.getChildren().set(1, textField);
+			}
+			showModified(row.getIndex());
+			setGraphic(pairBox);
+		} else {
+			objectLabel.setText(row.getLabel());
+			if (row.hasDuplicateButton()) {
+				duplicateButton.setDisable(controller.isLoading());
+				compareButton.setDisable(controller.isLoading());
+				if (!labelBox.getChildren().contains(duplicateButton)) {
+					labelBox.getChildren().addAll(duplicateButton, compareButton);
+				}
+				labelBox.setSpacing(10);
+				labelBox.setPadding(new Insets(2, 0, 0, 0));
+			} else {
+				labelBox.getChildren().removeAll(duplicateButton, compareButton);
+				labelBox.setSpacing(0);
+				labelBox.setPadding(Insets.EMPTY);
+			}
+			setGraphic(labelBox);
+		}
+	}
+
+	/**
+	 * Modified fields are blue until they're saved to file.
+	 */
+	private void showModified(int index) {
+		Node shown = pairBox.getChildren().get(1) == previewBox ? previewLabel : textField;
+		if (!controller.isFieldModified(index)) {
+			shown.getStyleClass().remove("modified");
+		} else if (!shown.getStyleClass().contains("modified")) {
+			shown.getStyleClass().add("modified");
+		}
+	}
+}
@@ -0,0 +1,78 @@
+package sample;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Knobs for how the editor behaves. These come from system properties (-Djsoneditor.parallelism=8 and so on), since
+ * there isn't a settings screen yet.
+ */
+final class EditorSettings {
+	private EditorSettings() {
+	}
+
+	/**
+	 * If true, every line gets parsed up front on a fork-join pool instead of when it's first needed.
+	 */
+	static boolean isParallelLoad() {
+		return Boolean.getBoolean("jsoneditor.parallelLoad");
+	}
+
+	/**
+	 * How many workers to parse with when loading in parallel. Defaults to one per core.
+	 */
+	static int getParallelism() {
+		return Math.max(1, Integer.getInteger("jsoneditor.parallelism", Runtime.getRuntime().availableProcessors()));
+	}
+
+	/**
+	 * If true, open files are watched, and when something else writes to one, only the lines that changed get
+	 * reloaded. Edits to lines that didn't change are kept.
+	 */
+	static boolean isAutoReload() {
+		return Boolean.getBoolean("jsoneditor.autoReload");
+	}
+
+	/**
+	 * Roughly how many bytes of heap closed tabs get to keep, so reopening them is instant. Set in megabytes,
+	 * defaults to a quarter of the max heap.
+	 */
+	static long getCacheBudget() {
+		long defaultMegabytes = Runtime.getRuntime().maxMemory() / 4 / (1024 * 1024);
+		return Math.max(0, Long.getLong("jsoneditor.cacheMegabytes", defaultMegabytes)) * 1024 * 1024;
+	}
+
+	/**
+	 * Strings at least this long are shown as a preview with a button to edit them, instead of in a text field, since
+	 * laying out megabytes of text in one takes forever. Their original value is left in the file rather than kept.
+	 */
+	static int getLargeValueChars() {
+		return Math.max(1, Integer.getInteger("jsoneditor.largeValueChars", 10_000));
+	}
+
+	/**
+	 * How hard to compress .gz files when saving them, from 1 (fastest) to 9 (smallest). 0 just stores it.
+	 */
+	static int getGzipLevel() {
+		return Math.min(9, Math.max(0, Integer.getInteger("jsoneditor.gzipLevel", 6)));
+	}
+
+	/**
+	 * The project whose resource files get indexed, so the path field can suggest them as you type. Null if it
+	 * isn't set, in which case you're stuck typing (or browsing for) the whole path.
+	 */
+	static Path getProjectRoot() {
+		String root = System.getProperty("jsoneditor.projectRoot");
+		return root == null || root.trim().isEmpty() ? null : Paths.get(root).toAbsolutePath().normalize();
+	}
+
+	/**
+	 * Where things we keep between runs (like the resource index) go. Defaults to .jsoneditor in your home folder,
+	 * so none of it ends up in a project's working tree.
+	 */
+	static Path getDataDirectory() {
+		String directory = System.getProperty("jsoneditor.dataDirectory");
+		return directory == null || directory.trim().isEmpty()
+				? Paths.get(System.getProperty("user.home"), ".jsoneditor") : Paths.get(directory);
+	}
+}
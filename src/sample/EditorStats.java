@@ -0,0 +1,171 @@
+package sample;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Where one file's time went, and how much of everything there was: how long reading, parsing, walking, showing
+ * and saving took all together, how many bytes, lines, fields and rows went through, and what the heap looked
+ * like around the last big step. Parsing happens on several threads at once, so the counts can take it.
+ * Every timed stretch is also a Flight Recorder event.
+ */
+class EditorStats {
+	enum Phase {
+		/**
+		 * Mapping the file and finding its lines.
+		 */
+		READ("Read"),
+		/**
+		 * Turning lines into json objects.
+		 */
+		PARSE("Parse"),
+		/**
+		 * Going through the objects to build the field table, search index and rows.
+		 */
+		WALK("Walk"),
+		/**
+		 * Handing rows over to the list on screen.
+		 */
+		SHOW("Show"),
+		SAVE("Save");
+
+		final private String label;
+
+		Phase(String label) {
+			this.label = label;
+		}
+	}
+
+	final private String      file;
+	final private LongAdder[] nanos             = new LongAdder[Phase.values().length];
+	final private LongAdder   bytesRead         = new LongAdder();
+	final private LongAdder   linesParsed       = new LongAdder();
+	final private LongAdder   primitivesIndexed = new LongAdder();
+	final private LongAdder   nodesCreated      = new LongAdder();
+	final private LongAdder   bytesWritten      = new LongAdder();
+	/**
+	 * Used heap before the last read or save, and after whatever was timed last.
+	 */
+	private volatile long     heapBefore;
+	private volatile long     heapAfter;
+
+	EditorStats(String file) {
+		this.file = file;
+		for (int i = 0; i < nanos.length; i++) {
+			nanos[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * Starts timing a stretch of a phase. Close it when it's done.
+	 */
+	Span start(Phase phase) {
+		return new Span(phase);
+	}
+
+	void lineParsed() {
+		linesParsed.increment();
+	}
+
+	void primitiveIndexed() {
+		primitivesIndexed.increment();
+	}
+
+	void nodeCreated() {
+		nodesCreated.increment();
+	}
+
+	long getMillis(Phase phase) {
+		return TimeUnit.NANOSECONDS.toMillis(nanos[phase.ordinal()].sum());
+	}
+
+	/**
+	 * Everything at once, by name, for printing or turning into json.
+	 */
+	Map<String, Long> snapshot() {
+		Map<String, Long> snapshot = new LinkedHashMap<>();
+		for (Phase phase : Phase.values()) {
+			snapshot.put(phase.label.toLowerCase() + "Millis", getMillis(phase));
+		}
+		snapshot.put("bytesRead", bytesRead.sum());
+		snapshot.put("linesParsed", linesParsed.sum());
+		snapshot.put("primitivesIndexed", primitivesIndexed.sum());
+		snapshot.put("nodesCreated", nodesCreated.sum());
+		snapshot.put("bytesWritten", bytesWritten.sum());
+		snapshot.put("heapBefore", heapBefore);
+		snapshot.put("heapAfter", heapAfter);
+		return snapshot;
+	}
+
+	/**
+	 * Short enough to sit next to the notifications, like "Read 12ms 3.1MB | Parse 340ms 20000 lines | ...".
+	 */
+	String summary() {
+		return "Read " + getMillis(Phase.READ) + "ms " + megabytes(bytesRead.sum())
+				+ " | Parse " + getMillis(Phase.PARSE) + "ms " + linesParsed.sum() + " lines"
+				+ " | Walk " + getMillis(Phase.WALK) + "ms " + primitivesIndexed.sum() + " fields " + nodesCreated.sum() + " rows"
+				+ " | Show " + getMillis(Phase.SHOW) + "ms"
+				+ " | Save " + getMillis(Phase.SAVE) + "ms " + megabytes(bytesWritten.sum())
+				+ " | Heap " + megabytes(heapBefore) + " to " + megabytes(heapAfter);
+	}
+
+	private static String megabytes(long bytes) {
+		return String.format("%.1fMB", bytes / (1024.0 * 1024.0));
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	/**
+	 * One timed stretch. Counts and bytes added to it go into the totals too.
+	 */
+	class Span implements AutoCloseable {
+		final private Phase      phase;
+		final private PhaseEvent event = new PhaseEvent();
+		final private long       startedAt;
+
+		private Span(Phase phase) {
+			this.phase = phase;
+			if (phase == Phase.READ || phase == Phase.SAVE) {
+				event.heapBefore = usedHeap();
+				heapBefore = event.heapBefore;
+			}
+			event.begin();
+			startedAt = System.nanoTime();
+		}
+
+		/**
+		 * Lines read or parsed, fields walked, rows shown or lines saved. Just for the event, the totals keep
+		 * their own counts.
+		 */
+		void count(long count) {
+			event.count += count;
+		}
+
+		void bytes(long bytes) {
+			event.bytes += bytes;
+			if (phase == Phase.READ) {
+				bytesRead.add(bytes);
+			} else if (phase == Phase.SAVE) {
+				bytesWritten.add(bytes);
+			}
+		}
+
+		@Override
+		public void close() {
+			nanos[phase.ordinal()].add(System.nanoTime() - startedAt);
+			event.end();
+			event.heapAfter = usedHeap();
+			heapAfter = event.heapAfter;
+			if (event.shouldCommit()) {
+				event.file = file;
+				event.phase = phase.label;
+				event.commit();
+			}
+		}
+	}
+}
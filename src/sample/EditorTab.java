@@ -0,0 +1,454 @@
+package sample;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javafx.animation.PauseTransition;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
+import javafx.scene.control.Tab;
+import javafx.scene.control.Tooltip;
+import javafx.util.Duration;
+
+/**
+ * One open file: its json, its rows, and the tab it shows up as. The controller only ever shows the selected one,
+ * but the others keep everything (edits, undo history, rows) so switching back is instant.
+ * Also what the json gets put on the UI through, so a tab still loading in the background fills in its own rows.
+ */
+class EditorTab implements IEditorListener {
+	/**
+	 * Guesses at what each row costs, for the cache's budget.
+	 */
+	private static final long     ROW_BYTES    = 48;
+	/**
+	 * How long a file has to go without being written before we reload it, since generators write in bursts.
+	 */
+	private static final Duration RELOAD_DELAY = Duration.millis(250);
+
+	final private Controller                controller;
+	final private Tab                       tab;
+	final private Path                      filePath;
+	/**
+	 * Which version of the file is in memory. Changes when we save or reload.
+	 */
+	private       DocumentCache.Key         key;
+	/**
+	 * Every row of the editor. Only the ones on screen get nodes, and field rows just point into the field table.
+	 */
+	final private ObservableList<EditorRow> rows        = FXCollections.observableArrayList();
+	/**
+	 * Rows that have been built but not shown yet. They go in all at once, so the list view only has to catch up
+	 * once per batch instead of once per row.
+	 */
+	final private List<EditorRow>           pendingRows = new ArrayList<>();
+	/**
+	 * Which row each field and each element (line) is on, so we can scroll straight to one.
+	 */
+	private       int[]                     fieldRows   = new int[16];
+	private       int[]                     elementRows = new int[16];
+	private       int                       elementsWithRows;
+	/**
+	 * Where the next row built will end up.
+	 */
+	private       int                       nextRow;
+	private       JsonManipGsonImpl         jsonManip;
+	/**
+	 * The loader, while the file is still loading (or getting its rows).
+	 */
+	private       FileLoader                loader;
+	/**
+	 * If the rows have been (or are being) added. They only get added once the list is shown, since the tree and
+	 * the table don't need them.
+	 */
+	private       boolean                   withRows;
+	final private PauseTransition           reloadDelay = new PauseTransition(RELOAD_DELAY);
+	/**
+	 * The file as a table, for showing it that way, and which version of the file it was read from. Read the first
+	 * time it's asked for, and again once the file's been saved or reloaded.
+	 */
+	private       ColumnTable               columns;
+	private       DocumentCache.Key         columnsKey;
+	private       Task<ColumnTable>         readingColumns;
+
+	EditorTab(Controller controller, Path filePath, DocumentCache.Key key) {
+		this.controller = controller;
+		this.filePath = filePath;
+		this.key = key;
+		tab = new Tab(filePath.getFileName().toString());
+		tab.setTooltip(new Tooltip(filePath.toString()));
+		tab.setUserData(this);
+		tab.setOnCloseRequest(e -> {
+			controller.flushEdits(); //Whatever was typed in the last frame counts
+			if (isDirty()) {
+				controller.setNotification("You must save or discard changes before closing " + tab.getText() + ".");
+				e.consume();
+			}
+		});
+		tab.setOnClosed(e -> controller.tabClosed(this));
+		reloadDelay.setOnFinished(e -> reload());
+	}
+
+	/**
+	 * Starts loading the file in the background, with its rows or without. Progress shows up in the notifications
+	 * while we're selected.
+	 */
+	void load(boolean withRows) {
+		this.withRows = withRows;
+		startLoading(new FileLoader(this, filePath, withRows));
+	}
+
+	/**
+	 * Starts adding the rows, if the file was loaded without them. Returns true if it did.
+	 */
+	boolean addRows() {
+		if (withRows || jsonManip == null || loader != null) {
+			return false; //Already have them, or the loader will tell us when it has the file
+		}
+		withRows = true;
+		startLoading(new FileLoader(this, filePath, jsonManip));
+		return true;
+	}
+
+	private void startLoading(FileLoader newLoader) {
+		loader = newLoader;
+		newLoader.messageProperty().addListener((observable, oldValue, message) -> {
+			if (loader == newLoader && isSelected()) {
+				controller.setNotification(message);
+			}
+		});
+		newLoader.start();
+	}
+
+	void cancelLoad() {
+		if (loader != null) {
+			loader.cancel();
+			loader = null;
+		}
+	}
+
+	/**
+	 * The loader has the file, and is about to start adding its rows (if it's adding them).
+	 */
+	void loadStarted(JsonManipGsonImpl jsonManip) {
+		this.jsonManip = jsonManip;
+		validateAllFields();
+	}
+
+	/**
+	 * Every row is in (or the file is, if it's without rows), so everything that had to wait for that can go.
+	 */
+	void loadFinished() {
+		loader = null;
+		controller.loadFinished(this);
+	}
+
+	/**
+	 * Nothing useful came out of the file, so forget whatever part of it we had.
+	 */
+	void loadFailed(String notification) {
+		loader = null;
+		jsonManip = null;
+		rows.clear();
+		pendingRows.clear();
+		controller.loadFailed(this, notification);
+	}
+
+	/**
+	 * Saves to file, and remembers that this is the version on disk now. If something else wrote to it since we
+	 * read it, it gets reloaded instead (keeping our edits where it can), and saving can be tried again after.
+	 */
+	void save() throws IOException {
+		if (!DocumentCache.Key.of(filePath).equals(key)) {
+			reload();
+			throw new IOException(tab.getText() + " changed on disk since it was loaded, reloading it");
+		}
+		jsonManip.saveData(filePath);
+		key = DocumentCache.Key.of(filePath);
+	}
+
+	/**
+	 * Something wrote to our file. We wait for it to settle down before reloading.
+	 */
+	void fileChanged() {
+		if (jsonManip != null && !isLoading()) {
+			reloadDelay.playFromStart();
+		}
+	}
+
+	/**
+	 * Works out what changed in the background, then catches up with it here.
+	 */
+	private void reload() {
+		try {
+			if (DocumentCache.Key.of(filePath).equals(key)) {
+				return; //Nothing new, or it was just us saving
+			}
+		} catch (IOException e) {
+			return; //Gone, or halfway through being replaced. If it comes back we'll hear about it.
+		}
+		IJsonManip manip = jsonManip;
+		Task<FileChange> finding = new Task<FileChange>() {
+			@Override
+			protected FileChange call() throws Exception {
+				return manip.findChanges(filePath);
+			}
+		};
+		finding.setOnSucceeded(e -> changesFound(manip, finding.getValue()));
+		finding.setOnFailed(e -> setNotification("Couldn't reload " + tab.getText() + ": " + finding.getException()));
+		Thread thread = new Thread(finding, "Reloading " + tab.getText());
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Only the rows need rebuilding (if there are any), the lines that didn't change keep what they had.
+	 */
+	private void changesFound(IJsonManip manip, FileChange change) {
+		if (manip != jsonManip || tab.getTabPane() == null) {
+			return; //Closed, or loaded again, while we were looking
+		}
+		if (!change.hasChanges()) {
+			key = change.getKey();
+			return;
+		}
+		controller.flushEdits(); //So they're lined up with the fields they were typed into
+		int dropped = manip.applyChanges(change);
+		if (dropped < 0) {
+			reloadDelay.playFromStart(); //We saved while we were looking, so look again
+			return;
+		}
+		key = change.getKey();
+		if (isSelected()) {
+			controller.clearSearch(); //The rows are about to move around
+		}
+		if (withRows) {
+			rebuildRows();
+		}
+		validateAllFields();
+		controller.refreshTable(this);
+		controller.refreshTree(this);
+		setNotification("Reloaded " + tab.getText() + ", " + change.getChangedLines() + " lines changed."
+				+ (dropped > 0 ? " Edits to " + dropped + " lines that changed on disk were dropped." : ""));
+	}
+
+	/**
+	 * Builds every row again, then swaps them all in at once.
+	 */
+	void rebuildRows() {
+		pendingRows.clear();
+		nextRow = 0; //They're all getting replaced
+		elementsWithRows = 0;
+		jsonManip.addElementsToUI();
+		try (EditorStats.Span span = jsonManip.getStats().start(EditorStats.Phase.SHOW)) {
+			rows.setAll(pendingRows);
+			span.count(pendingRows.size());
+		}
+		pendingRows.clear();
+	}
+
+	/**
+	 * Shows the rows that have been added since the last time.
+	 */
+	void flushRows() {
+		try (EditorStats.Span span = jsonManip.getStats().start(EditorStats.Phase.SHOW)) {
+			rows.addAll(pendingRows);
+			span.count(pendingRows.size());
+		}
+		pendingRows.clear();
+	}
+
+	/**
+	 * The file as a table, if it's been read since the file last changed. Otherwise null, and it starts being read
+	 * in the background, and the controller hears about it when it's ready. What's in the table is what's on disk,
+	 * so edits don't show up in it until they're saved.
+	 */
+	ColumnTable getColumns() {
+		if (columns != null && key.equals(columnsKey)) {
+			return columns;
+		}
+		columns = null;
+		if (readingColumns == null) {
+			DocumentCache.Key readingKey = key;
+			Task<ColumnTable> reading = new Task<ColumnTable>() {
+				@Override
+				protected ColumnTable call() throws Exception {
+					return ColumnTable.read(filePath);
+				}
+			};
+			reading.setOnSucceeded(e -> {
+				readingColumns = null;
+				columns = reading.getValue();
+				columnsKey = readingKey;
+				controller.refreshTable(this);
+			});
+			reading.setOnFailed(e -> {
+				readingColumns = null;
+				setNotification("Couldn't read " + tab.getText() + " as a table: " + reading.getException());
+			});
+			readingColumns = reading;
+			Thread thread = new Thread(reading, "Reading " + tab.getText() + " as a table");
+			thread.setDaemon(true);
+			thread.start();
+		}
+		return null;
+	}
+
+	/**
+	 * Adds a bold label row to the UI, so we can help identify where objects begin/end.
+	 */
+	@Override
+	public void addObjectLabel(String labelText) {
+		addRow(EditorRow.objectOpen(labelText));
+	}
+
+	/**
+	 * Adds a bold label row to the UI where an object ends.
+	 */
+	@Override
+	public void addObjectCloseLabel(String labelText) {
+		addRow(EditorRow.objectClose(labelText));
+	}
+
+	/**
+	 * Adds a bold label row to the UI, so we can help identify where objects begin/end.
+	 * Also gets a button to duplicate the object.
+	 */
+	@Override
+	public void addObjectLabelWithDuplicateButton(String labelText, int index) {
+		elementRows = setRow(elementRows, index);
+		elementsWithRows = index + 1;
+		addRow(EditorRow.objectOpenWithDuplicate(labelText, index));
+	}
+
+	/**
+	 * Add a row for each value. Its cell saves value-changes to the java object whenever they're changed, and
+	 * saves to file if you hit enter. We also make modified fields blue until they're saved to file.
+	 */
+	@Override
+	public void addPair(String key, int index) {
+		fieldRows = setRow(fieldRows, index);
+		addRow(EditorRow.field(key, index));
+	}
+
+	/**
+	 * A duplicated line's rows all go in at once, on the end.
+	 */
+	@Override
+	public void elementAdded(int index) {
+		flushRows();
+	}
+
+	/**
+	 * Rows are in line order, so everything from the line's first row on goes, and that's where the next row built
+	 * will be.
+	 */
+	@Override
+	public void elementsRemovedFrom(int index) {
+		if (index >= elementsWithRows) {
+			return;
+		}
+		nextRow = elementRows[index];
+		elementsWithRows = index;
+		rows.remove(nextRow, rows.size());
+	}
+
+	/**
+	 * The row the field is on, or -1 if its line hasn't had its rows added (yet).
+	 */
+	int getFieldRow(int index) {
+		return getElementRow(jsonManip.getFieldElement(index)) >= 0 ? fieldRows[index] : -1;
+	}
+
+	/**
+	 * The row the element (line) starts on, or -1 if it hasn't been added (yet).
+	 */
+	int getElementRow(int index) {
+		return index >= 0 && index < elementsWithRows ? elementRows[index] : -1;
+	}
+
+	/**
+	 * The buttons only belong to whichever tab is showing.
+	 */
+	@Override
+	public void validateAllFields() {
+		if (isSelected()) {
+			controller.validateAllFields();
+		}
+	}
+
+	@Override
+	public void setNotification(String notification) {
+		if (isSelected()) {
+			controller.setNotification(notification);
+		}
+	}
+
+	/**
+	 * Roughly how much heap we're holding onto, for deciding what the cache can keep.
+	 */
+	long estimateHeapSize() {
+		return (jsonManip == null ? 0 : jsonManip.estimateHeapSize()) + rows.size() * ROW_BYTES
+				+ (columns == null ? 0 : columns.estimateHeapSize());
+	}
+
+	private void addRow(EditorRow row) {
+		pendingRows.add(row);
+		nextRow++;
+	}
+
+	/**
+	 * Remembers that whatever's at that index is going on the next row, growing the array if it has to.
+	 */
+	private int[] setRow(int[] rowsByIndex, int index) {
+		if (index >= rowsByIndex.length) {
+			rowsByIndex = Arrays.copyOf(rowsByIndex, Math.max(index + 1, rowsByIndex.length + (rowsByIndex.length >> 1)));
+		}
+		rowsByIndex[index] = nextRow;
+		return rowsByIndex;
+	}
+
+	boolean isSelected() {
+		return tab.isSelected();
+	}
+
+	boolean isLoading() {
+		return loader != null;
+	}
+
+	/**
+	 * If there's anything that needs saving. Can't be, until something's loaded.
+	 */
+	boolean isDirty() {
+		return jsonManip != null && jsonManip.isDirty();
+	}
+
+	Tab getTab() {
+		return tab;
+	}
+
+	Path getFilePath() {
+		return filePath;
+	}
+
+	DocumentCache.Key getKey() {
+		return key;
+	}
+
+	ObservableList<EditorRow> getRows() {
+		return rows;
+	}
+
+	/**
+	 * Null until the loader has something.
+	 */
+	IJsonManip getJsonManip() {
+		return jsonManip;
+	}
+
+	FileLoader getLoader() {
+		return loader;
+	}
+}
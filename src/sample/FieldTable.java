@@ -0,0 +1,180 @@
+package sample;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+/**
+ * Every primitive that's been walked, so anything about a field (where it is, what it was, what's typed into it) is
+ * one index away. Each line's fields are a block of indices next to each other, handed out the first time the line
+ * gets walked, in whatever order that happens (top to bottom for the list, whichever gets opened for the tree).
+ * Walking a line again reuses its block, so a field's index never changes while its line is around.
+ */
+class FieldTable {
+	final private List<JsonEditorPrimitive> fields = new ArrayList<>();
+	/**
+	 * Where each line's block starts and ends, or -1 if it hasn't been walked yet.
+	 */
+	private       int[]                     starts = new int[16];
+	private       int[]                     ends   = new int[16];
+	/**
+	 * The object each line's block was walked from. A line that gets removed and then put back (undo, redo) is
+	 * the same object, so it gets its old block back, and edits to its fields can be redone.
+	 */
+	private       JsonObject[]              owners = new JsonObject[16];
+	/**
+	 * Lines from here on have been removed. Their blocks stay, in case they come back.
+	 */
+	private       int                       lineCount;
+	/**
+	 * Where the line being walked puts its next field, and where its block ends if it's reusing one.
+	 */
+	private       int                       cursor;
+	private       int                       limit  = -1;
+
+	FieldTable() {
+		Arrays.fill(starts, -1);
+	}
+
+	/**
+	 * Starts walking a line, and returns the index its first field gets. If it's been walked before, the fields
+	 * that are still in the same spot keep their entries, so their index, original value and whatever's typed in
+	 * all stay put. Otherwise its block goes on the end. Don't call this for a stale line, see isStale().
+	 */
+	int startLine(int line, JsonObject object) {
+		if (line >= starts.length) {
+			int length = Math.max(line + 1, starts.length + (starts.length >> 1));
+			int oldLength = starts.length;
+			starts = Arrays.copyOf(starts, length);
+			ends = Arrays.copyOf(ends, length);
+			owners = Arrays.copyOf(owners, length);
+			Arrays.fill(starts, oldLength, length, -1);
+		}
+		lineCount = Math.max(lineCount, line + 1);
+		if (starts[line] >= 0) {
+			cursor = starts[line];
+			limit = ends[line];
+		} else {
+			cursor = fields.size();
+			limit = -1;
+			starts[line] = cursor;
+			owners[line] = object;
+		}
+		return cursor;
+	}
+
+	/**
+	 * The entry we already have for the next field, if it's the one that lives in that parent under that key or
+	 * index. Otherwise null, and the walk should make a new one.
+	 */
+	JsonEditorPrimitive nextIfAt(JsonElement parent, Object slot) {
+		if (cursor < limit && fields.get(cursor).isAt(parent, slot)) {
+			return fields.get(cursor);
+		}
+		return null;
+	}
+
+	/**
+	 * Puts the field at the walk's current spot and returns the index it can be looked up by.
+	 */
+	int add(JsonEditorPrimitive field) {
+		if (limit < 0) {
+			fields.add(field);
+		} else if (cursor < limit) {
+			fields.set(cursor, field);
+		} else {
+			throw new IllegalStateException("Line has more fields than it did (" + field.getPath() + ")");
+		}
+		return cursor++;
+	}
+
+	/**
+	 * Done walking the line. Returns where its block ends.
+	 */
+	int finishLine(int line) {
+		if (limit >= 0 && cursor != limit) {
+			throw new IllegalStateException("Line " + line + " has fewer fields than it did");
+		}
+		ends[line] = cursor;
+		limit = -1;
+		return cursor;
+	}
+
+	/**
+	 * If the line has a block from some other object that used to be there, like a copy that was undone and then
+	 * replaced with a different one. Its block has to be released before the line gets walked.
+	 */
+	boolean isStale(int line, JsonObject object) {
+		return hasLine(line) && owners[line] != object;
+	}
+
+	/**
+	 * Empties the line's block for good. The indices are never handed out again, they just stay empty.
+	 */
+	void release(int line) {
+		for (int i = starts[line]; i < ends[line]; i++) {
+			fields.set(i, null);
+		}
+		starts[line] = -1;
+		owners[line] = null;
+	}
+
+	/**
+	 * Every line from this one on is gone, for now. See owners.
+	 */
+	void removeLinesFrom(int line) {
+		lineCount = Math.min(lineCount, line);
+	}
+
+	/**
+	 * Forgets every field, for when the elements have been swapped out from under us.
+	 */
+	void clear() {
+		fields.clear();
+		Arrays.fill(starts, -1);
+		Arrays.fill(owners, null);
+		lineCount = 0;
+		limit = -1;
+	}
+
+	/**
+	 * If the line's been walked, and so has a block, even if it's been removed since.
+	 */
+	boolean hasLine(int line) {
+		return line < starts.length && starts[line] >= 0;
+	}
+
+	/**
+	 * A line's fields are the ones from its start up to (not including) its end.
+	 */
+	int getLineStart(int line) {
+		return starts[line];
+	}
+
+	int getLineEnd(int line) {
+		return ends[line];
+	}
+
+	/**
+	 * If there's a field at that index whose line is still around. Indices can be empty (see release()), or
+	 * belong to a line that's been removed.
+	 */
+	boolean isLive(int index) {
+		JsonEditorPrimitive field = fields.get(index);
+		return field != null && field.getElementIndex() < lineCount;
+	}
+
+	JsonEditorPrimitive get(int index) {
+		return fields.get(index);
+	}
+
+	/**
+	 * One past the highest index handed out so far.
+	 */
+	int size() {
+		return fields.size();
+	}
+}
@@ -0,0 +1,112 @@
+package sample;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * What's different about a file since we last read or wrote it. Worked out off the UI thread, and only the lines
+ * that changed get parsed. Everything else keeps whatever we already had for it.
+ */
+class FileChange {
+	/**
+	 * The version of the file this is, taken before mapping it. If it gets written again while we're mapping,
+	 * that write will look like a change next time too, so we can't miss one.
+	 */
+	final private DocumentCache.Key        key;
+	final private LineIndex                oldIndex;
+	final private LineIndex                newIndex;
+	/**
+	 * For every new line, the old line it matched, or -1.
+	 */
+	final private int[]                    matches;
+	/**
+	 * Old lines that are still around, somewhere.
+	 */
+	final private BitSet                   kept      = new BitSet();
+	/**
+	 * The json lines that are new or changed, by their new line.
+	 */
+	final private Map<Integer, JsonObject> parsed    = new HashMap<>();
+	private       int                      changedLines;
+
+	private FileChange(DocumentCache.Key key, LineIndex oldIndex, LineIndex newIndex) {
+		this.key = key;
+		this.oldIndex = oldIndex;
+		this.newIndex = newIndex;
+		matches = oldIndex.match(newIndex);
+	}
+
+	/**
+	 * Maps the file as it is now and lines it up against the version we have. Throws if a changed line isn't
+	 * valid json, which usually just means it's still being written.
+	 */
+	static FileChange find(Path filePath, LineIndex oldIndex) throws IOException {
+		DocumentCache.Key key = DocumentCache.Key.of(filePath);
+		FileChange change = new FileChange(key, oldIndex, LineIndex.map(filePath));
+		JsonParser parser = new JsonParser();
+		for (int line = 0; line < change.matches.length; line++) {
+			if (change.matches[line] >= 0) {
+				change.kept.set(change.matches[line]);
+			} else {
+				change.changedLines++;
+				if (change.newIndex.startsWith(line, '{')) {
+					change.parsed.put(line, (JsonObject) parser.parse(change.newIndex.getLine(line)));
+				}
+			}
+		}
+		return change;
+	}
+
+	/**
+	 * False if every line is still there, like when the file just got touched.
+	 */
+	boolean hasChanges() {
+		return changedLines > 0 || kept.cardinality() < oldIndex.size();
+	}
+
+	/**
+	 * How many lines are new or different.
+	 */
+	int getChangedLines() {
+		return changedLines;
+	}
+
+	/**
+	 * The old line a new line matched, or -1 if it's new or changed.
+	 */
+	int getMatch(int newLine) {
+		return matches[newLine];
+	}
+
+	/**
+	 * Whether the old line is still somewhere in the new version.
+	 */
+	boolean wasKept(int oldLine) {
+		return kept.get(oldLine);
+	}
+
+	/**
+	 * The parsed json for a new or changed line, or null if it isn't a json line.
+	 */
+	JsonObject getParsed(int newLine) {
+		return parsed.get(newLine);
+	}
+
+	DocumentCache.Key getKey() {
+		return key;
+	}
+
+	LineIndex getOldIndex() {
+		return oldIndex;
+	}
+
+	LineIndex getNewIndex() {
+		return newIndex;
+	}
+}
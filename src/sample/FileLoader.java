@@ -0,0 +1,167 @@
+package sample;
+
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+
+/**
+ * Loads a file without hanging the window. A worker maps the file and parses it a chunk at a time, and every pulse
+ * the UI thread adds however many of the parsed lines it can get through in a few milliseconds. So the first screen
+ * shows up (and can be edited) while the rest is still coming.
+ * Without rows (for the tree, or the table), it only maps the file, and lines get parsed and walked as they're
+ * opened. The rows can be added later, by loading the same file again with what was already loaded.
+ * The value is null if the file didn't have anything in it.
+ */
+class FileLoader extends Task<JsonManipGsonImpl> {
+	/**
+	 * How many elements get parsed before the UI is allowed to have them.
+	 */
+	private static final int  PARSE_CHUNK     = 1024;
+	/**
+	 * How long the UI thread spends adding rows each pulse, so it still gets to draw a frame or so.
+	 */
+	private static final long PULSE_BUDGET_NS = 8_000_000L;
+
+	final private    EditorTab         tab;
+	final private    Path              filePath;
+	final private    boolean           withRows;
+	/**
+	 * What was already loaded, if we're only here to add its rows.
+	 */
+	final private    JsonManipGsonImpl loaded;
+	final private    AnimationTimer    pulse = new AnimationTimer() {
+		@Override
+		public void handle(long now) {
+			addParsedElements();
+		}
+	};
+	/**
+	 * Elements before this have been parsed, so the UI thread can use them. Writing this after the parsing is
+	 * what makes the parsed elements show up on the UI thread.
+	 */
+	private volatile int               parsedCount;
+	/**
+	 * Only touched on the UI thread, from here down.
+	 */
+	private          JsonManipGsonImpl jsonManip;
+	private          int               elementCount;
+	private          int               addedCount;
+
+	FileLoader(EditorTab tab, Path filePath, boolean withRows) {
+		this(tab, filePath, withRows, null);
+	}
+
+	/**
+	 * Adds the rows for a file that was loaded without them.
+	 */
+	FileLoader(EditorTab tab, Path filePath, JsonManipGsonImpl loaded) {
+		this(tab, filePath, true, loaded);
+	}
+
+	private FileLoader(EditorTab tab, Path filePath, boolean withRows, JsonManipGsonImpl loaded) {
+		this.tab = tab;
+		this.filePath = filePath;
+		this.withRows = withRows;
+		this.loaded = loaded;
+		setOnSucceeded(e -> {
+			if (getValue() == null) {
+				tab.loadFailed("Didn't find any json objects in file.");
+			} else if (!withRows) {
+				tab.loadStarted(getValue());
+				tab.loadFinished();
+			}
+		});
+		setOnFailed(e -> {
+			pulse.stop();
+			tab.loadFailed("Failed to retrieve data from file: " + getException());
+		});
+	}
+
+	/**
+	 * Kicks off the worker. It's a daemon, so a half-loaded file doesn't keep the app open.
+	 */
+	void start() {
+		Thread thread = new Thread(this, "Loading " + filePath.getFileName());
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Stops adding rows too. Has to be called on the UI thread.
+	 */
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		pulse.stop();
+		return super.cancel(mayInterruptIfRunning);
+	}
+
+	@Override
+	protected JsonManipGsonImpl call() throws Exception {
+		updateMessage("Loading " + filePath.getFileName() + "...");
+		JsonManipGsonImpl manip = loaded != null ? loaded : new JsonManipGsonImpl(tab, filePath);
+		if (manip.isEmpty()) {
+			return null;
+		}
+		if (!withRows) {
+			return manip; //Nothing gets parsed until it's shown
+		}
+		int count = manip.getElementCount();
+		parsedCount = 1; //Checking if it was empty parsed the first one
+		Platform.runLater(() -> begin(manip, count));
+
+		ForkJoinPool pool = new ForkJoinPool(EditorSettings.getParallelism());
+		try {
+			for (int from = parsedCount; from < count && !isCancelled(); from += PARSE_CHUNK) {
+				int to = Math.min(from + PARSE_CHUNK, count);
+				manip.parseElements(from, to, pool);
+				parsedCount = to;
+			}
+		} finally {
+			pool.shutdown();
+		}
+		return manip;
+	}
+
+	/**
+	 * Hands the file to the UI and starts adding rows, unless the tab got closed in the meantime.
+	 */
+	private void begin(JsonManipGsonImpl manip, int count) {
+		if (isCancelled()) {
+			return;
+		}
+		jsonManip = manip;
+		elementCount = count;
+		tab.loadStarted(manip);
+		manip.startAddingToUI();
+		pulse.start();
+	}
+
+	/**
+	 * One pulse's worth of rows. Always at least one element, so a giant line can't stall us forever.
+	 */
+	private void addParsedElements() {
+		long deadline = System.nanoTime() + PULSE_BUDGET_NS;
+		int available = parsedCount;
+		try (EditorStats.Span span = jsonManip.getStats().start(EditorStats.Phase.WALK)) {
+			int from = addedCount;
+			while (addedCount < available) {
+				jsonManip.addElementToUI(addedCount++);
+				if (System.nanoTime() >= deadline) {
+					break;
+				}
+			}
+			span.count(addedCount - from);
+		}
+		tab.flushRows();
+		updateProgress(addedCount, elementCount);
+		updateMessage("Loading " + filePath.getFileName() + ": " + addedCount + " of " + elementCount + " lines");
+
+		if (addedCount == elementCount) {
+			pulse.stop();
+			tab.loadFinished();
+			jsonManip.finishAddingToUI();
+		}
+	}
+}
@@ -0,0 +1,50 @@
+package sample;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+
+/**
+ * A string value left where it is in the mapped file, quotes, escapes and all, and only decoded when somebody asks
+ * for it. For large values, so a field's original doesn't have to be a second copy of it on the heap. It holds onto
+ * the mapping it was found in, which is fine since saving writes a new file instead of changing that one.
+ */
+class FileString {
+	final private LineIndex lineIndex;
+	final private long      start, end;
+	/**
+	 * How long it is decoded, so it can be compared with something without decoding it first.
+	 */
+	final private int       length;
+
+	FileString(LineIndex lineIndex, long start, long end, int length) {
+		this.lineIndex = lineIndex;
+		this.start = start;
+		this.end = end;
+		this.length = length;
+	}
+
+	int length() {
+		return length;
+	}
+
+	/**
+	 * Decodes it out of the file again.
+	 */
+	String read() {
+		ByteBuffer slice = lineIndex.slice(start, end);
+		byte[] bytes = new byte[slice.remaining()];
+		slice.get(bytes);
+		try {
+			JsonReader reader = new JsonReader(new StringReader(new String(bytes, StandardCharsets.UTF_8)));
+			reader.setLenient(true);
+			return reader.nextString();
+		} catch (IOException e) { //Reading from a string, so only if it isn't a string anymore
+			throw new JsonParseException("Value at " + start + " of " + lineIndex.getPath() + " isn't a string", e);
+		}
+	}
+}
@@ -0,0 +1,78 @@
+package sample;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import javafx.application.Platform;
+
+/**
+ * Watches the folders that open files live in, and tells the UI thread whenever a file in one of them gets
+ * written. Whoever's listening decides if it's a file they care about.
+ */
+class FileWatcher {
+	final private WatchService         service;
+	/**
+	 * How many open files are in each folder we're watching, so we can stop once the last one closes.
+	 * Only touched on the UI thread.
+	 */
+	final private Map<Path, Integer>   openFiles = new HashMap<>();
+	final private Map<Path, WatchKey>  keys      = new HashMap<>();
+
+	FileWatcher(Consumer<Path> listener) throws IOException {
+		service = FileSystems.getDefault().newWatchService();
+		Thread thread = new Thread(() -> waitForChanges(listener), "File watcher");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	void watch(Path file) throws IOException {
+		Path directory = file.getParent();
+		if (!openFiles.containsKey(directory)) {
+			//Files we save get moved into place, so they show up as created rather than modified
+			keys.put(directory, directory.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+					StandardWatchEventKinds.ENTRY_MODIFY));
+		}
+		openFiles.merge(directory, 1, Integer::sum);
+	}
+
+	void unwatch(Path file) {
+		Path directory = file.getParent();
+		Integer count = openFiles.get(directory);
+		if (count == null) {
+			return;
+		}
+		if (count == 1) {
+			openFiles.remove(directory);
+			keys.remove(directory).cancel();
+		} else {
+			openFiles.put(directory, count - 1);
+		}
+	}
+
+	private void waitForChanges(Consumer<Path> listener) {
+		while (true) {
+			WatchKey key;
+			try {
+				key = service.take();
+			} catch (InterruptedException | ClosedWatchServiceException e) {
+				return;
+			}
+			Path directory = (Path) key.watchable();
+			for (WatchEvent<?> event : key.pollEvents()) {
+				if (event.kind() != StandardWatchEventKinds.OVERFLOW) {
+					Path changed = directory.resolve((Path) event.context());
+					Platform.runLater(() -> listener.accept(changed));
+				}
+			}
+			key.reset();
+		}
+	}
+}
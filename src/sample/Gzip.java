@@ -0,0 +1,106 @@
+package sample;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.concurrent.FutureTask;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * For files saved as .gz (like archived .jsonl.gz resource sets). They can't be mapped the way they are, so they get
+ * decompressed as a stream into a local temp file, and mapped from there. Saving goes the other way, streaming the
+ * expanded copy back through a compressor. Nothing ever holds the whole expanded text on the heap.
+ */
+final class Gzip {
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private Gzip() {
+	}
+
+	static boolean isCompressed(Path path) {
+		return path.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".gz");
+	}
+
+	/**
+	 * The file's contents, decompressed on the way in if it's gzipped.
+	 */
+	static InputStream open(Path path) throws IOException {
+		InputStream in = Files.newInputStream(path);
+		try {
+			return isCompressed(path) ? new GZIPInputStream(in, BUFFER_SIZE) : new BufferedInputStream(in, BUFFER_SIZE);
+		} catch (IOException e) { //Not actually gzip
+			in.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Decompresses the file into a new temp file (in the default temp directory, so not on a slow shared drive)
+	 * and returns where it is. Whoever gets it should get rid of it with discard().
+	 */
+	static Path expand(Path path) throws IOException {
+		Path expanded = Files.createTempFile("jsoneditor", ".jsonl");
+		try (InputStream in = open(path)) {
+			Files.copy(in, expanded, StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException | RuntimeException e) {
+			discard(expanded);
+			throw e;
+		}
+		return expanded;
+	}
+
+	/**
+	 * Starts copying one file into another on its own thread, compressing it on the way if asked to, so it can get
+	 * on with it while the caller does whatever else saving involves. get() on what comes back waits for it, and
+	 * throws whatever it threw.
+	 */
+	static FutureTask<Void> startCopying(Path from, Path to, boolean compress) {
+		FutureTask<Void> task = new FutureTask<>(() -> {
+			if (compress) {
+				compress(from, to, EditorSettings.getGzipLevel());
+			} else {
+				Files.copy(from, to, StandardCopyOption.REPLACE_EXISTING);
+			}
+			return null;
+		});
+		Thread thread = new Thread(task, "Copying to " + to.getFileName());
+		thread.setDaemon(true);
+		thread.start();
+		return task;
+	}
+
+	static void compress(Path from, Path to, int level) throws IOException {
+		try (OutputStream out = new LeveledGzipStream(Files.newOutputStream(to), level)) {
+			Files.copy(from, out);
+		}
+	}
+
+	/**
+	 * Deletes a temp file we expanded or saved into. That works even while it's mapped on Linux and macOS (the
+	 * mapping keeps what it needs). Windows won't delete a mapped file, so there it stays until we exit, one per
+	 * gzipped load or save.
+	 */
+	static void discard(Path temp) {
+		try {
+			Files.deleteIfExists(temp);
+		} catch (IOException e) {
+			temp.toFile().deleteOnExit();
+		}
+	}
+
+	/**
+	 * GZIPOutputStream only does the default level unless you reach in and set it.
+	 */
+	private static class LeveledGzipStream extends GZIPOutputStream {
+		LeveledGzipStream(OutputStream out, int level) throws IOException {
+			super(out, BUFFER_SIZE);
+			def.setLevel(level);
+		}
+	}
+}
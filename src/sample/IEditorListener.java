@@ -0,0 +1,58 @@
+package sample;
+
+/**
+ * Whatever the json gets shown through as it's walked, and told about things worth telling the user. That's a tab
+ * in the editor, but it doesn't have to be anything at all, so the model works without a UI (like in Batch).
+ */
+interface IEditorListener {
+	/**
+	 * For when nobody's looking.
+	 */
+	IEditorListener NONE = new IEditorListener() {
+	};
+
+	/**
+	 * Where an object (that isn't a whole line) begins.
+	 */
+	default void addObjectLabel(String labelText) {
+	}
+
+	/**
+	 * Where an object ends.
+	 */
+	default void addObjectCloseLabel(String labelText) {
+	}
+
+	/**
+	 * Where a line begins. Lines can be duplicated, by index.
+	 */
+	default void addObjectLabelWithDuplicateButton(String labelText, int index) {
+	}
+
+	/**
+	 * A field, by its index in the field table.
+	 */
+	default void addPair(String key, int index) {
+	}
+
+	/**
+	 * Every row for a line that was just added (like a duplicate) has been added, so they can be shown.
+	 */
+	default void elementAdded(int index) {
+	}
+
+	/**
+	 * Every line from index on is gone (like when a duplicate gets undone), so their rows should go too.
+	 */
+	default void elementsRemovedFrom(int index) {
+	}
+
+	default void setNotification(String notification) {
+	}
+
+	/**
+	 * Something changed that might change what can be saved, undone and so on.
+	 */
+	default void validateAllFields() {
+	}
+}
@@ -2,6 +2,9 @@ package sample;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import com.google.gson.JsonObject;
 
@@ -25,16 +28,98 @@ interface IJsonManip {
 	 */
 	String getOriginalVal(int index);
 
+	/**
+	 * Returns whatever was last typed in for this primitive.
+	 */
+	String getFieldText(int index);
+
+	/**
+	 * If what's typed in for this primitive doesn't match its original value.
+	 */
+	boolean isFieldModified(int index);
+
 	/**
 	 * Set the value of the primitive object.
 	 */
 	void setPairValue(int index, String newVal);
 
+	/**
+	 * If any fields or elements have changed since loading or the last save.
+	 */
+	boolean isDirty();
+
+	/**
+	 * Roughly how many bytes of heap this is holding onto.
+	 */
+	long estimateHeapSize();
+
 	/**
 	 * Deserializes and saves to file.
 	 */
 	void saveData(Path filePath) throws IOException;
 
+	/**
+	 * Works out what changed in the file since we loaded or saved it. Doesn't change anything, so it's safe to
+	 * call off the UI thread.
+	 */
+	FileChange findChanges(Path filePath) throws IOException;
+
+	/**
+	 * Catches up with the changes, keeping edits to lines that didn't change. The UI has to be rebuilt afterwards.
+	 * Returns how many edited lines lost their edits, or -1 if the changes are out of date.
+	 */
+	int applyChanges(FileChange change);
+
+	/**
+	 * The fields matching the query, like "key=walletId value~abc", by index.
+	 * Throws IllegalArgumentException if the query doesn't make sense.
+	 */
+	BitSet search(String query);
+
+	/**
+	 * Changes every field the bulk edit matches, on every line, as a single undoable edit. The matching is spread
+	 * over the pool. Returns how many fields changed.
+	 */
+	int bulkEdit(BulkEdit edit, ForkJoinPool pool);
+
+	/**
+	 * How long reading, parsing, walking, showing and saving have taken, and how much went through them.
+	 */
+	EditorStats getStats();
+
+	/**
+	 * Where two elements (lines) differ, by path.
+	 */
+	List<StructureHashes.Difference> compareLines(int left, int right);
+
+	/**
+	 * Where the element differs from its line in the file as it is now. Something that isn't in the file yet is
+	 * compared with nothing.
+	 */
+	List<StructureHashes.Difference> compareWithDisk(int index, Path filePath) throws IOException;
+
+	/**
+	 * Which element (line) the field is in.
+	 */
+	int getFieldElement(int index);
+
+	/**
+	 * How many elements (lines) there are, walked or not.
+	 */
+	int getElementCount();
+
+	/**
+	 * The element itself, parsed if nobody's needed it yet. For looking at, like in the tree. Changes should go
+	 * through its fields.
+	 */
+	JsonObject getElement(int index);
+
+	/**
+	 * The field at that path (like "wallet.ids[2]") in the element, or -1 if there isn't one. If the element hasn't
+	 * been walked yet, it gets walked, without adding its rows.
+	 */
+	int findField(int element, String path);
+
 	/**
 	 * Gets object by index and duplicates it in our elements list.
 	 */
@@ -46,7 +131,22 @@ interface IJsonManip {
 	boolean haveElementsChanged();
 
 	/**
-	 * Undoes any changes in elements.
+	 * Undoes every change since loading or the last save. Returns true if elements were added or removed,
+	 * so the UI has to be rebuilt.
+	 */
+	boolean discardChanges();
+
+	boolean canUndo();
+
+	boolean canRedo();
+
+	/**
+	 * Takes back the last change. Returns true if that added or removed elements.
+	 */
+	boolean undo();
+
+	/**
+	 * Does the last undone change again. Returns true if that added or removed elements.
 	 */
-	void discardElementsChanges();
+	boolean redo();
 }
@@ -0,0 +1,274 @@
+package sample;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Writes out a new copy of a file where only the lines that changed get rewritten, either by patching the edited
+ * values into the line or by re-serializing it. Everything else (comments, spacing, untouched json lines) is copied
+ * straight out of the original mapping, in as few writes as possible.
+ * Keeps track of where every line ends up, so the new file can be indexed without scanning it again.
+ */
+class IncrementalSave implements AutoCloseable {
+	final private LineIndex   original;
+	final private FileChannel out;
+	/**
+	 * One Gson and one buffer for every line we have to serialize. The default Gson escapes <, >, &, = and ' for
+	 * embedding in html, which would turn values somebody typed into \u003c and such in their file, and leaves out
+	 * keys whose value is null, which would quietly drop them from every line we write out whole.
+	 */
+	final private Gson          gson = new GsonBuilder().disableHtmlEscaping().serializeNulls().create();
+	final private StringBuilder json = new StringBuilder();
+	/**
+	 * What separates lines in the original, so new lines match. Defaults to \n if the original only has one line.
+	 * For an ARRAY, it's what separates the objects in it instead, comma and all.
+	 */
+	final private byte[]        lineBreak;
+	/**
+	 * For objects spread over several lines, what each level gets indented by, and what goes at the start of every
+	 * line of one (how far the object itself is indented, after the line break), so rewritten objects look like the
+	 * rest. Null if objects are all on one line.
+	 */
+	final private String        indent;
+	final private String        objectLineStart;
+	/**
+	 * Whether the original ended with a line break, so we can keep it that way.
+	 */
+	final private boolean       endsWithLineBreak;
+	/**
+	 * Where the next run of untouched bytes in the original starts.
+	 */
+	private long copyFrom;
+	/**
+	 * How far lines have moved from where they were in the original, thanks to the lines we've replaced.
+	 */
+	private long shift;
+	private int  nextLine;
+	private long[] starts, ends;
+	private int    lineCount;
+
+	IncrementalSave(LineIndex original, Path target) throws IOException {
+		this.original = original;
+		this.out = FileChannel.open(target, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		int lines = original.size();
+		starts = new long[Math.max(16, lines)];
+		ends = new long[starts.length];
+		if (original.getLayout() == LineIndex.Layout.ARRAY) {
+			if (lines > 1) {
+				lineBreak = bytesBetween(original.getEnd(0), original.getStart(1));
+			} else if (lines == 1) { //A comma, then whatever came between the "[" and the first one
+				byte[] before = bytesBetween(original.getArrayStart(), original.getStart(0));
+				lineBreak = new byte[before.length + 1];
+				lineBreak[0] = ',';
+				System.arraycopy(before, 0, lineBreak, 1, before.length);
+			} else {
+				lineBreak = new byte[]{','};
+			}
+			endsWithLineBreak = false;
+		} else if (lines > 0 && original.getByteSize() > original.getEnd(lines - 1)) {
+			lineBreak = bytesBetween(original.getEnd(lines - 1), original.getByteSize());
+			endsWithLineBreak = true;
+		} else {
+			lineBreak = lines > 1 ? bytesBetween(original.getEnd(0), original.getStart(1)) : new byte[]{'\n'};
+			endsWithLineBreak = false;
+		}
+
+		String first = lines > 0 && original.getLayout() != LineIndex.Layout.LINES
+				? new String(bytesBetween(original.getStart(0), original.getEnd(0)), StandardCharsets.UTF_8) : "";
+		int secondLine = first.indexOf('\n') + 1;
+		if (secondLine > 0) {
+			String ownIndent = new String(bytesBetween(original.getStart(0) - leadingSpace(original.getStart(0)),
+					original.getStart(0)), StandardCharsets.UTF_8);
+			int indentEnd = secondLine;
+			while (indentEnd < first.length() && (first.charAt(indentEnd) == ' ' || first.charAt(indentEnd) == '\t')) {
+				indentEnd++;
+			}
+			String nested = first.substring(secondLine, indentEnd);
+			nested = nested.startsWith(ownIndent) ? nested.substring(ownIndent.length()) : nested;
+			indent = nested.isEmpty() ? "  " : nested;
+			objectLineStart = (first.contains("\r\n") ? "\r\n" : "\n") + ownIndent;
+		} else {
+			indent = null;
+			objectLineStart = null;
+		}
+	}
+
+	/**
+	 * Swaps the line's content for the serialized element. Lines in between are left to be copied as they are.
+	 * Lines have to be replaced in order.
+	 */
+	void replaceLine(int line, JsonElement element) throws IOException {
+		keepLinesBefore(line);
+		copy(copyFrom, original.getStart(line));
+		long start = original.getStart(line) + shift;
+		int length = write(serializeObject(element));
+		addLine(start, start + length);
+		shift += length - (original.getEnd(line) - original.getStart(line));
+		copyFrom = original.getEnd(line); //The line break after it comes along with the next copy
+		nextLine = line + 1;
+	}
+
+	/**
+	 * Keeps the line as it is, except for the byte ranges given (offsets from the start of the line, in order), which
+	 * get the serialized values instead. Lines have to be replaced or patched in order.
+	 */
+	void patchLine(int line, int[] from, int[] to, JsonElement[] values) throws IOException {
+		keepLinesBefore(line);
+		long lineStart = original.getStart(line), oldLength = original.getEnd(line) - lineStart;
+		long newLength = oldLength;
+		for (int i = 0; i < values.length; i++) {
+			copy(copyFrom, lineStart + from[i]);
+			newLength += write(serialize(values[i])) - (to[i] - from[i]);
+			copyFrom = lineStart + to[i]; //The rest of the line comes along with the next copy
+		}
+		addLine(lineStart + shift, lineStart + shift + newLength);
+		shift += newLength - oldLength;
+		nextLine = line + 1;
+	}
+
+	/**
+	 * Tacks an entirely new line onto the end of the file, or for an ARRAY, onto the end of the array.
+	 */
+	void appendLine(JsonElement element) throws IOException {
+		if (original.getLayout() == LineIndex.Layout.ARRAY) {
+			keepLinesBefore(original.size());
+			long at = original.getAppendPoint();
+			copy(copyFrom, at);
+			copyFrom = Math.max(copyFrom, at); //Everything after it comes along when we're closed
+			long position = out.position();
+			if (lineCount > 0) {
+				position += write(lineBreak);
+			}
+			addLine(position, position + write(serializeObject(element)));
+			return;
+		}
+		if (nextLine < original.size() || copyFrom < original.getByteSize()) {
+			keepLinesBefore(original.size());
+			copy(copyFrom, original.getByteSize());
+			copyFrom = original.getByteSize();
+		}
+		long position = out.position();
+		if (lineCount > 0 && (lineCount > original.size() || !endsWithLineBreak)) {
+			position += write(lineBreak);
+		}
+		addLine(position, position + write(serializeObject(element)));
+	}
+
+	/**
+	 * Copies whatever's left of the original, and puts the trailing line break back on if there was one.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			if (lineCount > original.size() && original.getLayout() != LineIndex.Layout.ARRAY) {
+				if (endsWithLineBreak) {
+					write(lineBreak);
+				}
+			} else {
+				keepLinesBefore(original.size());
+				copy(copyFrom, original.getByteSize());
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Maps the file we wrote, using the line positions we kept track of instead of searching it for line breaks.
+	 * It's wherever file is now, and belongs to path.
+	 */
+	LineIndex mapResult(Path path, Path file) throws IOException {
+		return LineIndex.map(path, file, starts, ends, lineCount, original);
+	}
+
+	/**
+	 * Untouched lines just move over by however much the replaced lines grew or shrank.
+	 */
+	private void keepLinesBefore(int line) {
+		for (; nextLine < line; nextLine++) {
+			addLine(original.getStart(nextLine) + shift, original.getEnd(nextLine) + shift);
+		}
+	}
+
+	private void copy(long from, long to) throws IOException {
+		if (to > from) {
+			ByteBuffer bytes = original.slice(from, to);
+			while (bytes.hasRemaining()) {
+				out.write(bytes);
+			}
+		}
+	}
+
+	private int write(byte[] bytes) throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		while (buffer.hasRemaining()) {
+			out.write(buffer);
+		}
+		return bytes.length;
+	}
+
+	private byte[] serialize(JsonElement element) {
+		json.setLength(0);
+		gson.toJson(element, json);
+		return json.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * A whole object, pretty-printed the same way as the file's if its objects are spread over several lines.
+	 */
+	private byte[] serializeObject(JsonElement element) throws IOException {
+		if (indent == null) {
+			return serialize(element);
+		}
+		StringWriter text = new StringWriter();
+		JsonWriter writer = new JsonWriter(text);
+		writer.setIndent(indent);
+		gson.toJson(element, writer);
+		writer.flush();
+		return text.toString().replace("\n", objectLineStart).getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * How many spaces and tabs come right before the offset, on its line.
+	 */
+	private int leadingSpace(long offset) {
+		int count = 0;
+		while (offset - count > 0) {
+			byte b = original.slice(offset - count - 1, offset - count).get();
+			if (b != ' ' && b != '\t') {
+				break;
+			}
+			count++;
+		}
+		return count;
+	}
+
+	private byte[] bytesBetween(long from, long to) {
+		ByteBuffer slice = original.slice(from, to);
+		byte[] bytes = new byte[slice.remaining()];
+		slice.get(bytes);
+		return bytes;
+	}
+
+	private void addLine(long start, long end) {
+		if (lineCount == starts.length) {
+			int newLength = starts.length + (starts.length >> 1);
+			starts = Arrays.copyOf(starts, newLength);
+			ends = Arrays.copyOf(ends, newLength);
+		}
+		starts[lineCount] = start;
+		ends[lineCount] = end;
+		lineCount++;
+	}
+}
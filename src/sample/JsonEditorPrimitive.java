@@ -1,8 +1,10 @@
 package sample;
 
+import java.lang.ref.WeakReference;
+import java.math.BigDecimal;
+
 import com.google.gson.JsonElement;
 import com.google.gson.JsonNull;
-import com.google.gson.JsonObject;
 import com.google.gson.JsonPrimitive;
 
 /**
@@ -10,17 +12,140 @@ import com.google.gson.JsonPrimitive;
  * Created by mturlington on 7/27/2016.
  */
 abstract class JsonEditorPrimitive {
-	final protected JsonPrimitive oldPrimitive;
+	/**
+	 * What type it was loaded as, so what's typed in can be turned back into that. Just the type, so the loaded
+	 * value doesn't get held onto after it's been changed.
+	 */
+	final private boolean               wasBoolean, wasNumber;
+	/**
+	 * Which top-level element (line) this primitive lives in, so we know which lines need saving.
+	 */
+	final private int                   elementIndex;
+	/**
+	 * Where it lives inside its element, like "wallet.ids[2]".
+	 */
+	final private String                path;
+	/**
+	 * The value as of loading (or the last save), so we can show "modified" and reset back to it.
+	 * Null if it was saved as null, or if it's large and still in the file.
+	 */
+	private       String                originalVal;
+	/**
+	 * For a large value that hasn't been changed since loading, where it is in the file instead of originalVal.
+	 * The string it was loaded as is only held weakly, for telling cheaply whether it's still what's typed in.
+	 */
+	private       FileString            originalInFile;
+	private       WeakReference<String> loadedText;
+	/**
+	 * Whatever is typed into the editor for it, which doesn't have to be a valid value of its type.
+	 */
+	private       String                editorText;
+
+	/**
+	 * inFile is where the value is in the file, for large strings, or null to just keep the original.
+	 */
+	JsonEditorPrimitive(JsonPrimitive old, int elementIndex, String path, FileString inFile) {
+		wasBoolean = old.isBoolean();
+		wasNumber = old.isNumber();
+		this.elementIndex = elementIndex;
+		this.path = path;
+		editorText = old.getAsString();
+		if (inFile != null) {
+			originalInFile = inFile;
+			loadedText = new WeakReference<>(editorText);
+		} else {
+			originalVal = editorText;
+		}
+	}
+
+	int getElementIndex() {
+		return elementIndex;
+	}
+
+	String getPath() {
+		return path;
+	}
+
+	/**
+	 * The key it lives under, or for something in an array, the key the array lives under.
+	 */
+	String getKey() {
+		int end = path.length();
+		while (end > 0 && path.charAt(end - 1) == ']') {
+			end = path.lastIndexOf('[', end - 1);
+		}
+		return path.substring(path.lastIndexOf('.', end - 1) + 1, end);
+	}
+
+	String getOriginalVal() {
+		return originalInFile != null ? originalInFile.read() : originalVal;
+	}
 
-	JsonEditorPrimitive(JsonPrimitive old) {
-		oldPrimitive = old;
+	String getEditorText() {
+		return editorText;
 	}
 
-	JsonPrimitive getOld() {
-		return oldPrimitive;
+	void setEditorText(String editorText) {
+		this.editorText = editorText;
 	}
 
-	abstract void setNew(String string);
+	/**
+	 * Whatever's in the parent now becomes the original value, and the editor shows it the way it was saved.
+	 */
+	void markSaved() {
+		originalVal = getCurrentVal(); //The same string the parent has, not a copy
+		originalInFile = null;
+		loadedText = null;
+		editorText = originalVal == null ? "null" : originalVal;
+	}
+
+	/**
+	 * If what's typed in doesn't match the original value.
+	 */
+	boolean isModified() {
+		if (originalInFile != null) {
+			//Only decode it if there's no cheaper way to tell
+			return editorText != loadedText.get()
+					&& (editorText.length() != originalInFile.length() || !editorText.equals(originalInFile.read()));
+		}
+		//Check if values were equal, or if the text is "null" and the original value was a null value
+		return !(editorText.equals("null") && null == originalVal) && !editorText.equals(originalVal);
+	}
+
+	/**
+	 * Turns the string into a value of the right type and puts it in the parent.
+	 */
+	void setNew(String string) {
+		set(getNewPrimitive(string));
+	}
+
+	/**
+	 * Puts the element in the parent, in this primitive's spot.
+	 */
+	abstract void set(JsonElement element);
+
+	/**
+	 * Whether this is the primitive that lives in the parent under that key (for objects) or index (for arrays).
+	 */
+	abstract boolean isAt(JsonElement parent, Object slot);
+
+	/**
+	 * The object or array it lives in.
+	 */
+	abstract JsonElement getParent();
+
+	/**
+	 * Whatever is in the parent right now, which might be JsonNull if they typed "null".
+	 */
+	abstract JsonElement getCurrent();
+
+	/**
+	 * The current value as the UI would show it, or null if it's been set to null.
+	 */
+	String getCurrentVal() {
+		JsonElement current = getCurrent();
+		return current.isJsonNull() ? null : current.getAsString();
+	}
 
 	/**
 	 * Returns a new JsonPrimitive of an appropriate type, which might actually be JsonNull instead of
@@ -30,11 +155,11 @@ abstract class JsonEditorPrimitive {
 		if (newVal.equals("null")) {
 			return JsonNull.INSTANCE;
 		}
-		if (getOld().isBoolean()) {
+		if (wasBoolean) {
 			return new JsonPrimitive(newVal.equalsIgnoreCase("true"));
-		} else if (getOld().isNumber()) {
+		} else if (wasNumber) {
 			try {
-				return new JsonPrimitive(Integer.parseInt(newVal));
+				return new JsonPrimitive(new BigDecimal(newVal)); //Keeps longs and decimals exactly as typed
 			} catch (NumberFormatException e) {
 				//We'll assign it as a string later, then.
 			}
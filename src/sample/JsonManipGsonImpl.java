@@ -1,20 +1,26 @@
 package sample;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RecursiveAction;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
-import com.google.gson.JsonPrimitive;
 
 /**
  * Should handle reading/modifying the json data from the file.
@@ -22,45 +28,94 @@ import com.google.gson.JsonPrimitive;
  */
 class JsonManipGsonImpl implements IJsonManip {
 	/**
-	 * Original value is saved so we can have UI notifications on "modified" values,
-	 * and to reset values to their original state.
+	 * Guesses at what parsed json costs per byte of text (every value is its own object, and so is every map entry),
+	 * and what each field in the table costs, for deciding what the cache can keep.
 	 */
-	final private List<String> originalVal = new ArrayList<>();
+	private static final int PARSED_BYTES_PER_BYTE = 10;
+	private static final int FIELD_BYTES           = 128;
+
+	/**
+	 * Every primitive that's been walked, with its original value (so we can have UI notifications on "modified"
+	 * values, and reset values to their original state) and whatever's typed in for it.
+	 */
+	final private FieldTable       fieldTable = new FieldTable();
+	/**
+	 * Our link back to the UI, or IEditorListener.NONE if there isn't one.
+	 */
+	final private IEditorListener  listener;
 	/**
-	 * Our link back to the UI.
+	 * Where the line being walked sends its rows. That's the listener when everything's being walked, and nowhere
+	 * when it's just one line whose fields are needed (like the tree opening it).
 	 */
-	final private Controller       controller;
+	private       IEditorListener  walkListener;
 	/**
 	 * For labeling on the UI.
 	 */
 	final private String           fileName;
 	/**
-	 * So we can discard changes and get back to this if we add/remove any.
+	 * We deserialize everything when we save to file. Lines only get parsed once they're needed.
 	 */
-	private       List<JsonObject> originalElements;
+	private       LazyElementList  elements;
 	/**
-	 * We deserialize everything when we save to file.
+	 * For preservation of comments/spacing when we're writing back to file. The file stays mapped (or its expanded
+	 * copy, or what we last saved it from), and lines are only read out of it when they're needed. Volatile, since looking for changes happens off the UI
+	 * thread.
 	 */
-	private       List<JsonObject> elements;
+	private volatile LineIndex     lineIndex;
 	/**
-	 * For preservation of comments/spacing when we're writing back to file.
+	 * Which version of the file lineIndex has. Saving over any other version would quietly throw away
+	 * whatever changed it.
 	 */
-	private List<String>              originalText         = new ArrayList<>();
-	private List<JsonEditorPrimitive> jsonEditorPrimitives = new ArrayList<>();
-
-	//TODO: just let them say "verifyAddWalletWithProperData" and it finds it automatically.
-	//The problem with this is making it clear on the UI as an alternative means of getting what we want...
-	//Maybe let them set the parent directory of the project somewhere, and it recursively searches, offering a
-	//dropdown of auto-fill file paths to choose? That sounds pretty damn fancy.
+	private volatile DocumentCache.Key onDisk;
+	/**
+	 * What's been modified since loading or the last save, so nobody has to go looking.
+	 */
+	final private DirtyTracker     dirtyTracker = new DirtyTracker();
+	/**
+	 * Every change since loading or the last save, so we can undo/redo them, and discard them by undoing the lot.
+	 */
+	final private EditJournal      journal      = new EditJournal();
+	/**
+	 * For finding fields by key, value or line without looking at all of them.
+	 */
+	final private SearchIndex      searchIndex  = new SearchIndex();
+	/**
+	 * For comparing lines, kept up to date as fields change rather than worked out from scratch every time.
+	 */
+	final private StructureHashes  hashes       = new StructureHashes();
+	/**
+	 * Where the values are in the line being walked, for finding large strings in the file. Only scanned for lines
+	 * that have one, and only kept while that line is being walked.
+	 */
+	private       ValueSpans       walkSpans;
+	private       int              walkSpansLine = -1;
+	/**
+	 * Whether every element has been walked into the field table and out to the UI as rows. Once it has, lines
+	 * being added or taken away only walk (or drop) that line, instead of everything being walked again. Until
+	 * then, lines only get walked as their fields are needed, without rows.
+	 */
+	private       boolean          walked;
+	/**
+	 * Edits that survived a reload, by element and then path, waiting for their line to be walked so their fields
+	 * have an index they can be put back at.
+	 */
+	final private Map<Integer, Map<String, String>> pendingEdits = new HashMap<>();
+	final private List<Integer>                     replayFields = new ArrayList<>();
+	final private List<String>                      replayTexts  = new ArrayList<>();
+	/**
+	 * Where the time's going, and how much of everything there is.
+	 */
+	final private EditorStats      stats;
 
 	/**
-	 * Gets the json java objects from the file, and remembers the UI controller.
+	 * Gets the json java objects from the file, and remembers what it's shown through.
 	 */
-	JsonManipGsonImpl(Controller controller, Path filePath) throws IOException {
-		elements = getGson(filePath);
-		originalElements = duplicateList(elements);
-		this.controller = controller;
+	JsonManipGsonImpl(IEditorListener listener, Path filePath) throws IOException {
+		this.listener = listener;
+		this.walkListener = listener;
 		this.fileName = filePath.getFileName().toString();
+		stats = new EditorStats(filePath.toString());
+		elements = getGson(filePath);
 	}
 
 	/**
@@ -68,7 +123,7 @@ class JsonManipGsonImpl implements IJsonManip {
 	 */
 	@Override
 	public boolean isEmpty() {
-		return elements.isEmpty() || elements.get(0).toString().equals("{}");
+		return elements.isEmpty() || elements.get(0).entrySet().isEmpty();
 	}
 
 	/**
@@ -76,193 +131,859 @@ class JsonManipGsonImpl implements IJsonManip {
 	 */
 	@Override
 	public String getOriginalVal(int index) {
-		return originalVal.get(index);
+		return fieldTable.get(index).getOriginalVal();
 	}
 
 	/**
-	 * Set the value of the primitive object.
+	 * Returns whatever was last typed in for this primitive.
+	 */
+	@Override
+	public String getFieldText(int index) {
+		return fieldTable.get(index).getEditorText();
+	}
+
+	/**
+	 * If what's typed in for this primitive doesn't match its original value.
+	 */
+	@Override
+	public boolean isFieldModified(int index) {
+		return dirtyTracker.isFieldModified(index);
+	}
+
+	/**
+	 * Set the value of the primitive object, and note it in the journal.
 	 */
 	@Override
 	public void setPairValue(int index, String newVal) {
-		jsonEditorPrimitives.get(index).setNew(newVal);
+		JsonEditorPrimitive primitive = fieldTable.get(index);
+		FieldEdit edit = new FieldEdit(index, primitive.getCurrent(), primitive.getEditorText(),
+				primitive.getNewPrimitive(newVal), newVal);
+		edit.redo();
+		journal.record(edit);
+	}
+
+	@Override
+	public boolean canUndo() {
+		return journal.canUndo();
+	}
+
+	@Override
+	public boolean canRedo() {
+		return journal.canRedo();
 	}
 
 	/**
-	 * Deserializes and saves to file.
+	 * Takes back the last change. Returns true if that added or removed elements.
 	 */
 	@Override
-	public void saveData(Path filePath) throws IOException {
-		Files.write(filePath, getJson().getBytes());
-		originalElements = duplicateList(elements);
+	public boolean undo() {
+		EditJournal.Edit edit = journal.undo();
+		return edit != null && edit.isStructural();
 	}
 
 	/**
-	 * Go through each Json element and add it, using the file name as a label.
+	 * Does the last undone change again. Returns true if that added or removed elements.
 	 */
 	@Override
-	public void addElementsToUI() {
+	public boolean redo() {
+		EditJournal.Edit edit = journal.redo();
+		return edit != null && edit.isStructural();
+	}
+
+	/**
+	 * Undoes every change since loading or the last save, newest first, so everything ends up exactly how it was.
+	 * Returns true if any elements were added or removed along the way.
+	 */
+	@Override
+	public boolean discardChanges() {
+		return journal.undoAll();
+	}
+
+	/**
+	 * If any fields or elements have changed since loading or the last save.
+	 */
+	@Override
+	public boolean isDirty() {
+		return dirtyTracker.isDirty();
+	}
+
+	/**
+	 * Roughly how many bytes of heap this is holding onto. The file itself is mapped, so it doesn't count, just
+	 * the lines that have been parsed into objects and the fields we're keeping track of.
+	 */
+	@Override
+	public long estimateHeapSize() {
+		long averageLine = lineIndex.getByteSize() / Math.max(1, lineIndex.size());
+		long parsedBytes = 0;
 		for (int i = 0; i < elements.size(); i++) {
-			addJson(fileName + "[" + i + "]", elements.get(i));
+			if (elements.isParsed(i)) {
+				int line = elements.getLine(i);
+				parsedBytes += line < 0 ? averageLine : lineIndex.getEnd(line) - lineIndex.getStart(line);
+			}
 		}
-		controller.validateAllFields();
+		return parsedBytes * PARSED_BYTES_PER_BYTE + (long) fieldTable.size() * FIELD_BYTES;
 	}
 
 	/**
-	 * Gets JsonOject by index from elements and duplicates it in the list.
+	 * Saves to file, only rewriting the lines that changed. Edited values get patched into their line where they
+	 * were, so the rest of it stays byte for byte the same, and only new lines (or ones we can't patch) get
+	 * re-serialized. It gets written somewhere local first, which becomes our new mapped copy, then copied (or
+	 * compressed, for a .gz) next to the file and swapped in. Afterwards, what's in memory is what's on disk, so we
+	 * just carry on with it instead of loading it all over again. Refuses if the file isn't the version we read
+	 * anymore, since the rest of it would be written from our copy.
 	 */
 	@Override
-	public void duplicateAndAddToList(int index) {
-		elements.add(duplicateObject(elements.get(index)));
+	public void saveData(Path filePath) throws IOException {
+		if (!DocumentCache.Key.of(filePath).equals(onDisk)) {
+			throw new IOException(filePath.getFileName() + " changed on disk since it was read, reload it first");
+		}
+		Map<Integer, List<JsonEditorPrimitive>> editedFields = new HashMap<>();
+		for (int i = dirtyTracker.nextModifiedField(0); i >= 0; i = dirtyTracker.nextModifiedField(i + 1)) {
+			JsonEditorPrimitive field = fieldTable.get(i);
+			editedFields.computeIfAbsent(field.getElementIndex(), e -> new ArrayList<>()).add(field);
+		}
+		Path tempFile = Files.createTempFile("jsoneditor", ".jsonl");
+		try (EditorStats.Span span = stats.start(EditorStats.Phase.SAVE)) {
+			IncrementalSave save = new IncrementalSave(lineIndex, tempFile);
+			try {
+				for (int i = 0; i < elements.size(); i++) {
+					if (!elements.isDirty(i)) {
+						continue; //Gets copied over as-is
+					}
+					span.count(1);
+					int line = elements.getLine(i);
+					if (line < 0) {
+						save.appendLine(elements.get(i));
+					} else if (!patchLine(save, line, editedFields.get(i))) {
+						save.replaceLine(line, elements.get(i));
+					}
+				}
+			} finally {
+				save.close();
+			}
+			int firstNewLine = lineIndex.size();
+			lineIndex = copyInto(filePath, save, tempFile);
+			span.bytes(lineIndex.getByteSize());
+			elements.saved(lineIndex, firstNewLine);
+		} finally {
+			Gzip.discard(tempFile); //Mapped now, if it worked
+		}
+
+		//What we just saved is the new starting point for "modified" and for discarding
+		for (int i = dirtyTracker.nextModifiedField(0); i >= 0; i = dirtyTracker.nextModifiedField(i + 1)) {
+			fieldTable.get(i).markSaved();
+		}
+		dirtyTracker.clear();
+		journal.clear();
 	}
 
 	/**
-	 * If the elements list doesn't match the original elements list size, we've added or removed.
-	 * We shouldn't need to compare sub-fields...the modified fields should be enough.
-	 * This could change if we ever allow adding/removing sub-objects.
+	 * Copies what we wrote (in a local temp file) next to the file, compressing it if the file's a .gz, and swaps
+	 * that in. We map the local one from then on, and get it ready while the copying happens in the background.
+	 */
+	private LineIndex copyInto(Path filePath, IncrementalSave save, Path written) throws IOException {
+		Path copy = Files.createTempFile(filePath.toAbsolutePath().getParent(), fileName, ".tmp");
+		try {
+			FutureTask<Void> copying = Gzip.startCopying(written, copy, Gzip.isCompressed(filePath));
+			LineIndex saved = save.mapResult(filePath, written);
+			if (EditorSettings.isAutoReload()) {
+				saved.computeHashes();
+			}
+			try {
+				copying.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted copying to " + filePath);
+			} catch (ExecutionException e) {
+				throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+			}
+			Files.move(copy, filePath, StandardCopyOption.REPLACE_EXISTING);
+			onDisk = DocumentCache.Key.of(filePath);
+			return saved;
+		} finally {
+			Files.deleteIfExists(copy);
+		}
+	}
+
+	/**
+	 * Swaps the current values of the edited fields into the line in place of what was there. Fields that were
+	 * edited and then put back aren't in the list, so they keep their original bytes too. False if the line can't
+	 * be scanned or a field isn't in it, so it has to be re-serialized instead.
+	 */
+	private boolean patchLine(IncrementalSave save, int line, List<JsonEditorPrimitive> fields) throws IOException {
+		ValueSpans spans = ValueSpans.scan(lineIndex.slice(lineIndex.getStart(line), lineIndex.getEnd(line)));
+		if (spans == null) {
+			return false;
+		}
+		JsonElement[] bySpan = new JsonElement[spans.size()];
+		int count = 0;
+		if (fields != null) {
+			for (JsonEditorPrimitive field : fields) {
+				int span = spans.indexOf(field.getPath());
+				if (span < 0) {
+					return false;
+				}
+				bySpan[span] = field.getCurrent();
+				count++;
+			}
+		}
+		int[] from = new int[count], to = new int[count];
+		JsonElement[] values = new JsonElement[count];
+		for (int span = 0, i = 0; i < count; span++) { //Spans are already in the order they show up in the line
+			if (bySpan[span] != null) {
+				from[i] = spans.getStart(span);
+				to[i] = spans.getEnd(span);
+				values[i++] = bySpan[span];
+			}
+		}
+		save.patchLine(line, from, to, values);
+		return true;
+	}
+
+	/**
+	 * Maps the file as it is now and works out which lines changed since we loaded or saved it. Doesn't touch
+	 * anything of ours, so it can happen off the UI thread.
 	 */
 	@Override
-	public boolean haveElementsChanged() {
-		return elements.size() != originalElements.size(); //Ehhhh this will do for now
+	public FileChange findChanges(Path filePath) throws IOException {
+		return FileChange.find(filePath, lineIndex);
 	}
 
+	/**
+	 * Catches up with a newer version of the file. Every change gets undone, the elements are lined up with the
+	 * new lines (only the changed ones were parsed), and lines that were duplicated but never saved go back on the
+	 * end. Edits to lines that are still there get put back, which means walking those lines again (without rows,
+	 * the next full walk makes those). Edits to lines that changed on disk are dropped, since the disk wins. The
+	 * undo history only has the edits that survived.
+	 * Returns how many edited lines lost their edits, or -1 if we've saved since the change was found.
+	 */
 	@Override
-	public void discardElementsChanges() {
-		if (haveElementsChanged()) {
-			elements = duplicateList(originalElements);
+	public int applyChanges(FileChange change) {
+		if (change.getOldIndex() != lineIndex) {
+			return -1; //It was lined up against a version we don't have anymore
+		}
+
+		//Unsaved lines are always on the end
+		int fromFile = 0;
+		while (fromFile < elements.size() && elements.getLine(fromFile) >= 0) {
+			fromFile++;
+		}
+		List<JsonObject> added = new ArrayList<>(elements.subList(fromFile, elements.size()));
+		BitSet droppedLines = new BitSet();
+		Map<Integer, Map<String, String>> keptEdits = new HashMap<>();
+		for (int i = dirtyTracker.nextModifiedField(0); i >= 0; i = dirtyTracker.nextModifiedField(i + 1)) {
+			JsonEditorPrimitive field = fieldTable.get(i);
+			int line = elements.getLine(field.getElementIndex());
+			if (line >= 0 && !change.wasKept(line)) {
+				droppedLines.set(line);
+			} else {
+				keptEdits.computeIfAbsent(field.getElementIndex(), e -> new HashMap<>())
+						.put(field.getPath(), field.getEditorText());
+			}
+		}
+
+		walked = false; //The rows all get built again afterwards
+		journal.undoAll();
+		journal.clear();
+		dirtyTracker.clear();
+		fieldTable.clear();
+		searchIndex.clear();
+		hashes.clear();
+		int[] moved = elements.reload(change);
+		lineIndex = change.getNewIndex();
+		onDisk = change.getKey();
+		int firstAdded = elements.size();
+		for (JsonObject copy : added) {
+			LineDuplication edit = new LineDuplication(elements.size(), copy);
+			edit.redo();
+			journal.record(edit);
+		}
+
+		pendingEdits.clear();
+		for (Map.Entry<Integer, Map<String, String>> edits : keptEdits.entrySet()) {
+			int element = edits.getKey();
+			pendingEdits.put(element < fromFile ? moved[element] : firstAdded + element - fromFile, edits.getValue());
 		}
-		addElementsToUI();
+		for (int element : new ArrayList<>(pendingEdits.keySet())) {
+			walkLine(element, IEditorListener.NONE);
+		}
+		pendingEdits.clear(); //Anything left didn't have a field to go to anymore
+		return droppedLines.cardinality();
 	}
 
 	/**
-	 * Returns a copy of the passed in jsonObject.
+	 * Go through each Json element and add it, using the file name as a label. The field table gets built up
+	 * as we go, keeping the entries (and modified status) of fields we already had.
 	 */
-	private JsonObject duplicateObject(JsonObject jsonObject) {
-		return new Gson().fromJson(jsonObject, JsonObject.class); //Feels like a gross way to copy a JsonObject
+	@Override
+	public void addElementsToUI() {
+		try (EditorStats.Span span = stats.start(EditorStats.Phase.PARSE)) {
+			for (int i = 0; i < elements.size(); i++) {
+				if (!elements.isParsed(i)) { //Done up front, so it doesn't get counted as walking
+					elements.get(i);
+					span.count(1);
+				}
+			}
+		}
+		try (EditorStats.Span span = stats.start(EditorStats.Phase.WALK)) {
+			startAddingToUI();
+			for (int i = 0; i < elements.size(); i++) {
+				addElementToUI(i);
+			}
+			finishAddingToUI();
+			span.count(fieldTable.size());
+		}
 	}
 
 	/**
-	 * Returns a copy of a jsonObject list.
+	 * The first step of adding everything to the UI, for when it's done a few elements at a time. Lines that were
+	 * already walked (like by the tree) keep their fields, they just get rows now.
 	 */
-	private List<JsonObject> duplicateList(List<JsonObject> list) {
-		return list.stream().map(this::duplicateObject).collect(Collectors.toList()); //Creates a wholly separate copy of elements. References are unique, too.
+	void startAddingToUI() {
+		walked = false;
 	}
 
 	/**
-	 * Get the gson java objects from the given filepath.
+	 * Adds a single element (line), in any order. Walking a line again reuses its fields.
 	 */
-	private List<JsonObject> getGson(Path filePath) throws IOException {
-		JsonParser parser = new JsonParser();
-		originalText = Files.readAllLines(filePath);
-		return originalText.stream().filter(l -> l.startsWith("{")).map(l -> (JsonObject) parser.parse(l)).collect(Collectors.toList());
+	void addElementToUI(int index) {
+		JsonObject element = elements.get(index);
+		if (fieldTable.isStale(index, element)) {
+			releaseLine(index);
+		}
+		walkSpans = null;
+		walkSpansLine = -1;
+		int firstField = fieldTable.startLine(index, element);
+		addObject(fileName + "[" + index + "]", "", element, index, true);
+		searchIndex.setLine(index, firstField, fieldTable.finishLine(index));
 	}
 
 	/**
-	 * Combines all of the java objects into a single json string.
+	 * Once every element has been added, put back whatever edits were waiting for their fields.
 	 */
-	private String getJson() {
-		String json = "";
+	void finishAddingToUI() {
+		replayEdits();
+		pendingEdits.clear(); //Anything left didn't have a field to go to anymore
+		walkSpans = null;
+		walked = true;
+		listener.validateAllFields();
+	}
 
-		//Goal here is to add the new lines of json (replacing the old) without interfering with any content lines
-		int j = 0;
-		for (int i = 0; i < originalText.size(); i++) {
-			String originalLine = originalText.get(i);
-			json += originalLine.startsWith("{") ? convertToJson(elements.get(j++)) : originalLine;
-			if (i < originalText.size() - 1) {
-				json += "\n";
-			}
+	/**
+	 * Walks just the one line, with its rows going wherever it's told, and puts back any edits that were waiting
+	 * for it.
+	 */
+	private void walkLine(int index, IEditorListener rows) {
+		walkListener = rows;
+		try (EditorStats.Span span = stats.start(EditorStats.Phase.WALK)) {
+			addElementToUI(index);
+			span.count(fieldTable.getLineEnd(index) - fieldTable.getLineStart(index));
+		} finally {
+			walkListener = listener;
+		}
+		replayEdits();
+	}
+
+	private void replayEdits() {
+		for (int i = 0; i < replayFields.size(); i++) {
+			setPairValue(replayFields.get(i), replayTexts.get(i));
 		}
-		//This part should take care of adding any entirely new lines
-		if (j < elements.size()) {
-			json += "\n";
-			for (; j < elements.size(); j++) {
-				json += convertToJson(elements.get(j));
-				if (j < elements.size() - 1) {
-					json += "\n";
+		replayFields.clear();
+		replayTexts.clear();
+	}
+
+	/**
+	 * A line was just added on the end. If everything before it is already in the field table, only it gets
+	 * walked, and the UI gets told its rows are all there. If it was here before (undone, then redone), it gets
+	 * its fields back either way. Otherwise it waits until it's needed.
+	 */
+	private void walkAddedElement(int index) {
+		if (walked) {
+			walkLine(index, listener);
+			listener.elementAdded(index);
+		} else if (fieldTable.hasLine(index)) {
+			walkLine(index, IEditorListener.NONE);
+		}
+	}
+
+	/**
+	 * The line on the end is about to go, so its fields go from the field table (keeping their block, in case it
+	 * comes back), and its rows from the UI.
+	 */
+	private void unwalkElement(int index) {
+		if (fieldTable.hasLine(index)) {
+			forgetFields(index);
+		}
+		fieldTable.removeLinesFrom(index);
+		searchIndex.removeLinesFrom(index);
+		if (walked) {
+			listener.elementsRemovedFrom(index);
+		}
+	}
+
+	/**
+	 * Some other object used to be on this line, so its fields are gone for good.
+	 */
+	private void releaseLine(int index) {
+		forgetFields(index);
+		fieldTable.release(index);
+	}
+
+	/**
+	 * Nothing should find the line's fields by searching, or count them as modified.
+	 */
+	private void forgetFields(int index) {
+		for (int i = fieldTable.getLineStart(index); i < fieldTable.getLineEnd(index); i++) {
+			dirtyTracker.setFieldModified(i, false);
+			searchIndex.remove(i);
+		}
+	}
+
+	@Override
+	public int getElementCount() {
+		return elements.size();
+	}
+
+	/**
+	 * Parses a range of elements ahead of them being added to the UI, so it can happen off the UI thread.
+	 */
+	void parseElements(int from, int to, ForkJoinPool pool) {
+		try (EditorStats.Span span = stats.start(EditorStats.Phase.PARSE)) {
+			elements.parseRange(from, to, pool);
+			span.count(to - from);
+		}
+	}
+
+	/**
+	 * The fields matching the query, by index. See SearchIndex for what a query looks like.
+	 */
+	@Override
+	public BitSet search(String query) {
+		return searchIndex.search(query);
+	}
+
+	/**
+	 * Works out the new text of every matching field on the pool, a chunk of fields at a time, then sets them all
+	 * as one edit, so a single undo takes the whole thing back. Lines that haven't been walked yet (like in the
+	 * tree) get walked first, parsed on the pool.
+	 */
+	@Override
+	public int bulkEdit(BulkEdit edit, ForkJoinPool pool) {
+		if (!walked) {
+			parseElements(0, elements.size(), pool);
+			for (int i = 0; i < elements.size(); i++) {
+				if (!fieldTable.hasLine(i)) {
+					walkLine(i, IEditorListener.NONE);
 				}
 			}
 		}
+		String[] newTexts = new String[fieldTable.size()];
+		BulkEditChunk chunk = new BulkEditChunk(edit, newTexts, 0, newTexts.length);
+		if (ForkJoinTask.getPool() == pool || newTexts.length <= BulkEditChunk.CHUNK_SIZE) {
+			chunk.invoke(); //Already on the pool, or too small to be worth handing over
+		} else {
+			pool.invoke(chunk);
+		}
+		List<FieldEdit> fieldEdits = new ArrayList<>();
+		for (int i = 0; i < newTexts.length; i++) {
+			if (newTexts[i] != null) {
+				JsonEditorPrimitive primitive = fieldTable.get(i);
+				fieldEdits.add(new FieldEdit(i, primitive.getCurrent(), primitive.getEditorText(),
+						primitive.getNewPrimitive(newTexts[i]), newTexts[i]));
+			}
+		}
+		if (!fieldEdits.isEmpty()) {
+			BulkFieldEdit bulk = new BulkFieldEdit(fieldEdits);
+			bulk.redo();
+			journal.record(bulk);
+		}
+		return fieldEdits.size();
+	}
+
+	/**
+	 * Timings and counts for everything done to this file so far.
+	 */
+	@Override
+	public EditorStats getStats() {
+		return stats;
+	}
+
+	/**
+	 * Where two elements differ. Parts with the same hash on both sides get skipped without looking inside them.
+	 */
+	@Override
+	public List<StructureHashes.Difference> compareLines(int left, int right) {
+		return hashes.diff(elements.get(left), hashes, elements.get(right));
+	}
+
+	/**
+	 * Compares with the element's line in the file as it is now. If the file hasn't changed since we read it (the
+	 * usual case), that's just the line's bytes out of what we already have mapped. If it has, the file gets
+	 * mapped and scanned for lines again, which costs as much as loading it did, minus the parsing. The saved
+	 * line's hashes only last for the comparison.
+	 */
+	@Override
+	public List<StructureHashes.Difference> compareWithDisk(int index, Path filePath) throws IOException {
+		int line = elements.getLine(index);
+		LineIndex file = DocumentCache.Key.of(filePath).equals(onDisk) ? lineIndex : LineIndex.map(filePath);
+		JsonObject saved = new JsonObject();
+		if (line >= 0 && line < file.size() && file.startsWith(line, '{')) {
+			saved = new JsonParser().parse(file.getLine(line)).getAsJsonObject();
+		}
+		return hashes.diff(elements.get(index), new StructureHashes(), saved);
+	}
+
+	/**
+	 * Which element (line) the field is in.
+	 */
+	@Override
+	public int getFieldElement(int index) {
+		return fieldTable.get(index).getElementIndex();
+	}
+
+	@Override
+	public JsonObject getElement(int index) {
+		return elements.get(index);
+	}
+
+	/**
+	 * A line's fields are all next to each other, so only that line's get looked at. If it hasn't been walked yet,
+	 * it gets walked now (without rows), which is how the tree only ever walks the lines that get opened.
+	 */
+	@Override
+	public int findField(int element, String path) {
+		if (element >= elements.size()) {
+			return -1;
+		}
+		if (!fieldTable.hasLine(element)) {
+			walkLine(element, IEditorListener.NONE);
+		}
+		for (int i = fieldTable.getLineStart(element); i < fieldTable.getLineEnd(element); i++) {
+			if (fieldTable.get(i).getPath().equals(path)) {
+				return i;
+			}
+		}
+		return -1;
+	}
 
-		return json;
+	/**
+	 * Gets JsonOject by index from elements and duplicates it at the end of the list.
+	 */
+	@Override
+	public void duplicateAndAddToList(int index) {
+		LineDuplication edit = new LineDuplication(elements.size(), duplicateObject(elements.get(index)));
+		edit.redo();
+		journal.record(edit);
 	}
 
-	//Shrug
-	private String convertToJson(JsonElement element) {
-		return new Gson().toJson(element);
+	/**
+	 * If we've added or removed any elements since loading or the last save.
+	 * We shouldn't need to compare sub-fields...the modified fields should be enough.
+	 * This could change if we ever allow adding/removing sub-objects.
+	 */
+	@Override
+	public boolean haveElementsChanged() {
+		return dirtyTracker.haveElementsChanged();
+	}
+
+	/**
+	 * Returns a copy of the passed in jsonObject.
+	 */
+	private JsonObject duplicateObject(JsonObject jsonObject) {
+		return new Gson().fromJson(jsonObject, JsonObject.class); //Feels like a gross way to copy a JsonObject
+	}
+
+	/**
+	 * Maps the file and finds the json lines in it (or the objects, if it's pretty-printed or one big array).
+	 * Nothing gets parsed until it's shown or edited, unless we're set to load in parallel, in which case it all
+	 * gets parsed right away.
+	 */
+	private LazyElementList getGson(Path filePath) throws IOException {
+		LazyElementList elements;
+		try (EditorStats.Span span = stats.start(EditorStats.Phase.READ)) {
+			onDisk = DocumentCache.Key.of(filePath); //Before mapping it, so a write while we do is a change later
+			lineIndex = LineIndex.map(filePath);
+			if (EditorSettings.isAutoReload()) {
+				lineIndex.computeHashes();
+			}
+			elements = new LazyElementList(lineIndex, stats);
+			span.bytes(lineIndex.getByteSize());
+			span.count(lineIndex.size());
+		}
+		if (EditorSettings.isParallelLoad()) {
+			try (EditorStats.Span span = stats.start(EditorStats.Phase.PARSE)) {
+				elements.parseAll(EditorSettings.getParallelism());
+				span.count(elements.size());
+			}
+		}
+		return elements;
 	}
 
 	/**
 	 * Determine what type it is and handle it appropriately. If it's none of these,
 	 * don't know what it is, just don't do anything I guess?
+	 * Primitives get added by their parent, since that's who knows how to change them.
 	 */
-	private void addJson(String key, JsonElement element) {
+	private void addJson(String key, String path, JsonElement element, int elementIndex) {
 		if (element.isJsonArray()) {
-			addArray(key, element.getAsJsonArray());
+			addArray(key, path, element.getAsJsonArray(), elementIndex);
 		} else if (element.isJsonObject()) {
-			addObject(key, element.getAsJsonObject());
-		} else if (element.isJsonPrimitive()) {
-			addPrimitive(key, element.getAsJsonPrimitive());
+			addObject(key, path, element.getAsJsonObject(), elementIndex, false);
 		} else if (element.isJsonNull()) {
 			//Do nothing? If it's null it probably shouldn't even be in the file.
 		} else {
-			controller.setNotification("Unknown json type: " + key);
+			listener.setNotification("Unknown json type: " + key);
 		}
 	}
 
 	/**
 	 * If it's a JsonArray, handle each object and label them.
 	 */
-	private void addArray(String key, JsonArray array) {
+	private void addArray(String key, String path, JsonArray array, int elementIndex) {
 		for (int i = 0; i < array.size(); i++) {
-			if (array.get(i).isJsonPrimitive()) {
-				jsonEditorPrimitives.add(new ArrayPrimitive(array.get(i).getAsJsonPrimitive(), array, i));
+			String childKey = key + "[" + i + "]", childPath = path + "[" + i + "]";
+			JsonElement child = array.get(i);
+			JsonEditorPrimitive known = fieldTable.nextIfAt(array, i);
+			if (known != null) {
+				addPrimitive(childKey, known); //Might be null now, but it's still a field they can type in
+			} else if (child.isJsonPrimitive()) {
+				addPrimitive(childKey, new ArrayPrimitive(child.getAsJsonPrimitive(), array, i, elementIndex, childPath,
+						findInFile(child, elementIndex, childPath)));
+			} else {
+				addJson(childKey, childPath, child, elementIndex);
 			}
-			addJson(key + "[" + i + "]", array.get(i));
 		}
 	}
 
 	/**
-	 * Add primitive to the UI, and give them the hashcode to identify our primitive with, should they need to change the value.
+	 * Add primitive to the field table and the UI, which gets its index to identify our primitive with, should
+	 * they need to change the value.
 	 */
-	private void addPrimitive(String key, JsonPrimitive primitive) {
-		originalVal.add(primitive.getAsString());
-		for (JsonEditorPrimitive editorPrimitive : jsonEditorPrimitives) { //I'm confident there's a better way than this.
-			if (editorPrimitive.getOld() == primitive) {
-				controller.addPair(key, primitive.getAsString(), jsonEditorPrimitives.indexOf(editorPrimitive));
-				return;
+	private void addPrimitive(String key, JsonEditorPrimitive primitive) {
+		int index = fieldTable.add(primitive);
+		stats.primitiveIndexed();
+		dirtyTracker.setFieldModified(index, primitive.isModified());
+		searchIndex.set(index, primitive.getKey(), primitive.getEditorText());
+		if (!pendingEdits.isEmpty()) {
+			Map<String, String> edits = pendingEdits.get(primitive.getElementIndex());
+			String text = edits == null ? null : edits.remove(primitive.getPath());
+			if (text != null) {
+				replayFields.add(index);
+				replayTexts.add(text);
 			}
 		}
+		walkListener.addPair(key, index);
+		stats.nodeCreated();
 	}
 
 	/**
-	 * Add all sub-objects to the vbox, with labels.
+	 * Where a large string is in the file, so its field can leave its original there instead of holding onto it.
+	 * Null if it isn't a large string, or the file doesn't have it as it is now (it's new, or been changed).
 	 */
-	private void addObject(String key, JsonObject object) {
-		Optional<Integer> index = getIndexOfObject(object);
+	private FileString findInFile(JsonElement value, int elementIndex, String path) {
+		if (!value.getAsJsonPrimitive().isString() || value.getAsString().length() < EditorSettings.getLargeValueChars()) {
+			return null;
+		}
+		int line = elements.getLine(elementIndex);
+		if (line < 0 || elements.isDirty(elementIndex)) {
+			return null;
+		}
+		if (line != walkSpansLine) {
+			walkSpans = ValueSpans.scan(lineIndex.slice(lineIndex.getStart(line), lineIndex.getEnd(line)));
+			walkSpansLine = line;
+		}
+		int span = walkSpans == null ? -1 : walkSpans.indexOf(path);
+		if (span < 0) {
+			return null; //Not strict json, so we can't be sure where it is
+		}
+		long lineStart = lineIndex.getStart(line);
+		return new FileString(lineIndex, lineStart + walkSpans.getStart(span), lineStart + walkSpans.getEnd(span),
+				value.getAsString().length());
+	}
+
+	/**
+	 * Add all sub-objects to the UI, with labels. Only top-level objects (lines) get a duplicate button,
+	 * I see no reason to copy sub objects.
+	 */
+	private void addObject(String key, String path, JsonObject object, int elementIndex, boolean topLevel) {
 		String labelText = key + "~{";
-		if (index.isPresent()) {
-			controller.addObjectLabelWithDuplicateButton(labelText, index.get());
+		if (topLevel) {
+			walkListener.addObjectLabelWithDuplicateButton(labelText, elementIndex);
 		} else {
-			controller.addObjectLabel(labelText); //Probably a sub object. I see no need to copy those
+			walkListener.addObjectLabel(labelText);
 		}
-		//If it's not present, it's probably a sub object, which isn't allowed for copies (I see no reason for it)
+		stats.nodeCreated();
 		for (Map.Entry<String, JsonElement> pair : object.entrySet()) {
-			if (pair.getValue().isJsonPrimitive()) {
-				jsonEditorPrimitives.add(new ObjectPrimitive(pair.getValue().getAsJsonPrimitive(), object, pair.getKey()));
+			String childPath = path.isEmpty() ? pair.getKey() : path + "." + pair.getKey();
+			JsonElement child = pair.getValue();
+			JsonEditorPrimitive known = fieldTable.nextIfAt(object, pair.getKey());
+			if (known != null) {
+				addPrimitive(pair.getKey(), known);
+			} else if (child.isJsonPrimitive()) {
+				addPrimitive(pair.getKey(), new ObjectPrimitive(child.getAsJsonPrimitive(), object, pair.getKey(),
+						elementIndex, childPath, findInFile(child, elementIndex, childPath)));
+			} else {
+				addJson(pair.getKey(), childPath, child, elementIndex);
 			}
-			addJson(pair.getKey(), pair.getValue());
 		}
-		controller.addObjectLabel("}~" + key);
+		walkListener.addObjectCloseLabel("}~" + key);
+		stats.nodeCreated();
 	}
 
 	/**
-	 * Gets the index of an object that exists in our elements list.
+	 * One field being set, from whatever it was to the new value. Typing more into the same field just updates
+	 * the new value, so a whole burst of typing undoes in one go.
 	 */
-	private Optional<Integer> getIndexOfObject(JsonObject object) {
-		for (int i = 0; i < elements.size(); i++) {
-			if (elements.get(i).equals(object)) {
-				return Optional.of(i);
+	private class FieldEdit implements EditJournal.Edit {
+		final private int         index;
+		final private JsonElement oldElement;
+		final private String      oldText;
+		private       JsonElement newElement;
+		private       String      newText;
+
+		FieldEdit(int index, JsonElement oldElement, String oldText, JsonElement newElement, String newText) {
+			this.index = index;
+			this.oldElement = oldElement;
+			this.oldText = oldText;
+			this.newElement = newElement;
+			this.newText = newText;
+		}
+
+		@Override
+		public void undo() {
+			apply(oldElement, oldText);
+		}
+
+		@Override
+		public void redo() {
+			apply(newElement, newText);
+		}
+
+		@Override
+		public boolean isStructural() {
+			return false;
+		}
+
+		@Override
+		public boolean absorb(EditJournal.Edit next) {
+			if (next instanceof FieldEdit && ((FieldEdit) next).index == index) {
+				newElement = ((FieldEdit) next).newElement;
+				newText = ((FieldEdit) next).newText;
+				return true;
 			}
+			return false;
+		}
+
+		private void apply(JsonElement element, String text) {
+			JsonEditorPrimitive primitive = fieldTable.get(index);
+			primitive.setEditorText(text);
+			primitive.set(element);
+			hashes.changed(primitive.getParent());
+			elements.markDirty(primitive.getElementIndex());
+			dirtyTracker.setFieldModified(index, primitive.isModified());
+			searchIndex.set(index, primitive.getKey(), text);
+		}
+	}
+
+	/**
+	 * A whole bulk edit's worth of fields being set at once.
+	 */
+	private static class BulkFieldEdit implements EditJournal.Edit {
+		final private List<FieldEdit> fieldEdits;
+
+		BulkFieldEdit(List<FieldEdit> fieldEdits) {
+			this.fieldEdits = fieldEdits;
+		}
+
+		@Override
+		public void undo() {
+			for (int i = fieldEdits.size() - 1; i >= 0; i--) {
+				fieldEdits.get(i).undo();
+			}
+		}
+
+		@Override
+		public void redo() {
+			for (FieldEdit fieldEdit : fieldEdits) {
+				fieldEdit.redo();
+			}
+		}
+
+		@Override
+		public boolean isStructural() {
+			return false;
+		}
+	}
+
+	/**
+	 * Checks a range of fields against a bulk edit, splitting it in half until it's small enough to just do.
+	 * Only reads the fields, and only writes its own slots of newTexts. Empty slots, and fields of lines that have
+	 * been taken away, get skipped.
+	 */
+	private class BulkEditChunk extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private static final int  CHUNK_SIZE       = 4096;
+
+		final private BulkEdit edit;
+		final private String[] newTexts;
+		final private int      from, to;
+
+		BulkEditChunk(BulkEdit edit, String[] newTexts, int from, int to) {
+			this.edit = edit;
+			this.newTexts = newTexts;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > CHUNK_SIZE) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new BulkEditChunk(edit, newTexts, from, middle), new BulkEditChunk(edit, newTexts, middle, to));
+				return;
+			}
+			for (int i = from; i < to; i++) {
+				if (!fieldTable.isLive(i)) {
+					continue;
+				}
+				JsonEditorPrimitive primitive = fieldTable.get(i);
+				if (edit.matches(primitive.getPath())) {
+					newTexts[i] = edit.apply(primitive.getEditorText());
+				}
+			}
+		}
+	}
+
+	/**
+	 * A copy of a line being added to the elements.
+	 */
+	private class LineDuplication implements EditJournal.Edit {
+		final private int        position;
+		final private JsonObject copy;
+
+		LineDuplication(int position, JsonObject copy) {
+			this.position = position;
+			this.copy = copy;
+		}
+
+		@Override
+		public void undo() {
+			unwalkElement(position);
+			hashes.removed(copy);
+			elements.remove(position);
+			dirtyTracker.structureRestored();
+		}
+
+		@Override
+		public void redo() {
+			elements.add(position, copy);
+			dirtyTracker.structureChanged();
+			walkAddedElement(position);
+		}
+
+		@Override
+		public boolean isStructural() {
+			return true;
 		}
-		return Optional.empty();
 	}
 }
@@ -0,0 +1,109 @@
+package sample;
+
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.WeakChangeListener;
+import javafx.scene.Node;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.TextField;
+import javafx.scene.control.TreeCell;
+import javafx.scene.layout.HBox;
+
+/**
+ * Shows one JsonTreeItem. Objects, arrays and lines are just their key and how big they are. Values get a text
+ * field, which edits the same field the list would, or a preview and a button if they're too long for one.
+ * Like the list's cells, only enough of these get made to fill the screen.
+ */
+class JsonTreeCell extends TreeCell<String> {
+	private static final int PREVIEW_CHARS = 200;
+
+	final private Controller controller;
+	final private Label      branchLabel  = new Label();
+	final private HBox       valueBox     = new HBox();
+	final private Label      keyLabel     = new Label();
+	final private TextField  textField    = new TextField();
+	final private Label      previewLabel = new Label();
+	final private Button     editButton   = new Button("Edit...");
+	/**
+	 * The field on this row right now, or -1 if it isn't showing one.
+	 */
+	private       int        field        = -1;
+	/**
+	 * Set while we're putting a field's value into the text field, so that doesn't count as an edit.
+	 */
+	private       boolean    updating;
+	/**
+	 * Same as the list's cells, the highlight catches up once the typing's gone in.
+	 */
+	final private ChangeListener<Number> editsPublished = (observable, oldCount, count) -> {
+		if (field >= 0) {
+			showModified();
+		}
+	};
+
+	JsonTreeCell(Controller controller) {
+		this.controller = controller;
+		branchLabel.getStyleClass().add("ParentObject");
+		valueBox.setSpacing(10);
+		textField.setMinWidth(600);
+		textField.setOnAction(e -> controller.saveObjects()); //If you hit enter, save
+		textField.textProperty().addListener((observable, oldValue, newValue) -> {
+			if (!updating && field >= 0) {
+				controller.fieldEdited(field, newValue);
+			}
+		});
+		previewLabel.setMaxWidth(600);
+		editButton.setOnAction(e -> controller.editLargeValue(field, getItem()));
+		controller.editsPublishedProperty().addListener(new WeakChangeListener<>(editsPublished));
+	}
+
+	@Override
+	protected void updateItem(String key, boolean empty) {
+		super.updateItem(key, empty);
+		setText(null);
+		field = -1;
+		if (empty || key == null) {
+			setGraphic(null);
+			return;
+		}
+
+		JsonTreeItem item = (JsonTreeItem) getTreeItem();
+		if (!item.isLeaf()) {
+			branchLabel.setText(key + " " + item.getSummary());
+			setGraphic(branchLabel);
+			return;
+		}
+		field = item.getField();
+		if (field < 0) { //Nothing to edit, so just show it
+			branchLabel.setText(key + ": " + (item.getJson().isJsonNull() ? "null" : item.getJson().getAsString()));
+			setGraphic(branchLabel);
+			return;
+		}
+		keyLabel.setText(key);
+		String text = controller.getFieldText(field);
+		if (text.length() >= EditorSettings.getLargeValueChars()) {
+			previewLabel.setText(text.substring(0, Math.min(PREVIEW_CHARS, text.length())) + "... ("
+					+ text.length() + " characters)");
+			valueBox.getChildren().setAll(keyLabel, previewLabel, editButton);
+		} else {
+			updating = true;
+			textField.setText(text);
+			updating = false;
+			valueBox.getChildren().setAll(keyLabel, textField);
+		}
+		showModified();
+		setGraphic(valueBox);
+	}
+
+	/**
+	 * Modified fields are blue until they're saved to file.
+	 */
+	private void showModified() {
+		Node shown = valueBox.getChildren().contains(previewLabel) ? previewLabel : textField;
+		if (!controller.isFieldModified(field)) {
+			shown.getStyleClass().remove("modified");
+		} else if (!shown.getStyleClass().contains("modified")) {
+			shown.getStyleClass().add("modified");
+		}
+	}
+}
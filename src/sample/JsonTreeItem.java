@@ -0,0 +1,112 @@
+package sample;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import javafx.scene.control.TreeItem;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+
+/**
+ * One line, object, array or value in the tree, labeled with its key. Children only get made when it's expanded,
+ * and get dropped again when it's collapsed, so a collapsed line costs one of these and nothing else. Lines don't
+ * get parsed until they're drawn (unless something else already parsed them), and their fields aren't made until
+ * a value in them is drawn, which walks just that line.
+ */
+class JsonTreeItem extends TreeItem<String> {
+	final private IJsonManip  manip;
+	final private int         element;
+	/**
+	 * Where it is in its line, like "wallet.ids[2]", or "" for the line itself.
+	 */
+	final private String      path;
+	/**
+	 * Null for a line, which gets looked up when it's needed, since it might not have been parsed yet.
+	 */
+	final private JsonElement json;
+	/**
+	 * The field a value is, once it's been found.
+	 */
+	private       int         field = -1;
+
+	/**
+	 * A whole line, which starts out collapsed.
+	 */
+	JsonTreeItem(IJsonManip manip, String label, int element) {
+		this(manip, label, element, "", null);
+	}
+
+	private JsonTreeItem(IJsonManip manip, String key, int element, String path, JsonElement json) {
+		super(key);
+		this.manip = manip;
+		this.element = element;
+		this.path = path;
+		this.json = json;
+	}
+
+	/**
+	 * Whoever the tree's root is should call this for every item expanded under it. Events bubble up to the
+	 * root, so one handler there covers everything instead of a listener on every item.
+	 */
+	void expanded() {
+		JsonElement value = getJson();
+		List<JsonTreeItem> children = new ArrayList<>();
+		if (value.isJsonObject()) {
+			for (Map.Entry<String, JsonElement> pair : value.getAsJsonObject().entrySet()) {
+				children.add(new JsonTreeItem(manip, pair.getKey(), element,
+						path.isEmpty() ? pair.getKey() : path + "." + pair.getKey(), pair.getValue()));
+			}
+		} else {
+			JsonArray array = value.getAsJsonArray();
+			for (int i = 0; i < array.size(); i++) {
+				children.add(new JsonTreeItem(manip, "[" + i + "]", element, path + "[" + i + "]", array.get(i)));
+			}
+		}
+		getChildren().setAll(children);
+	}
+
+	/**
+	 * And this for every one collapsed, so what was under it can be let go.
+	 */
+	void collapsed() {
+		getChildren().clear();
+	}
+
+	@Override
+	public boolean isLeaf() {
+		return json != null && !json.isJsonObject() && !json.isJsonArray();
+	}
+
+	int getElement() {
+		return element;
+	}
+
+	JsonElement getJson() {
+		return json != null ? json : manip.getElement(element);
+	}
+
+	/**
+	 * What goes after the key for an object or array, so you can tell how big it is without opening it.
+	 */
+	String getSummary() {
+		JsonElement value = getJson();
+		if (value.isJsonObject()) {
+			int keys = value.getAsJsonObject().entrySet().size();
+			return "{" + keys + (keys == 1 ? " key}" : " keys}");
+		}
+		int items = value.getAsJsonArray().size();
+		return "[" + items + (items == 1 ? " item]" : " items]");
+	}
+
+	/**
+	 * The field this value is, for editing it, or -1 if it isn't one (like a null the file came with). The first
+	 * one asked for in a line walks that line.
+	 */
+	int getField() {
+		if (field < 0) {
+			field = manip.findField(element, path);
+		}
+		return field;
+	}
+}
@@ -0,0 +1,45 @@
+package sample;
+
+import java.util.function.Consumer;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.TextArea;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import javafx.stage.Stage;
+
+/**
+ * A window for editing one large value, so the text only gets laid out when somebody actually wants to see it all.
+ */
+class LargeValueEditor {
+	private LargeValueEditor() {
+	}
+
+	/**
+	 * apply gets whatever's in the box when they hit Apply. Cancel (or closing it) leaves the field alone.
+	 */
+	static void show(Stage owner, String title, String text, Consumer<String> apply) {
+		TextArea area = new TextArea(text);
+		area.setWrapText(true);
+		Stage stage = new Stage();
+		Button applyButton = new Button("Apply");
+		Button cancelButton = new Button("Cancel");
+		applyButton.setOnAction(e -> {
+			apply.accept(area.getText());
+			stage.close();
+		});
+		cancelButton.setOnAction(e -> stage.close());
+		HBox buttons = new HBox(10, applyButton, cancelButton);
+		buttons.setAlignment(Pos.CENTER_RIGHT);
+		buttons.setPadding(new Insets(6));
+		BorderPane root = new BorderPane(area);
+		root.setBottom(buttons);
+
+		stage.initOwner(owner);
+		stage.setTitle(title);
+		stage.setScene(new Scene(root, 800, 600));
+		stage.show();
+	}
+}
@@ -0,0 +1,305 @@
+package sample;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+/**
+ * A list of the json objects in a file, where each one is only parsed from its line once somebody asks for it.
+ * Anything that didn't come from the file (like a duplicated line) is just held as a JsonObject.
+ * Lines can get parsed by the UI thread and a loader's workers at the same time, and whichever is first wins, so
+ * there's only ever one JsonObject for a line. Adding and removing elements is still only for the UI thread.
+ */
+class LazyElementList extends AbstractList<JsonObject> {
+	/**
+	 * Counts every line parsed. Timing is up to whoever asked for the parsing.
+	 */
+	final private EditorStats                      stats;
+	private       LineIndex                        lineIndex;
+	/**
+	 * Which line of the file each element came from, or -1 if it didn't come from the file.
+	 */
+	private       int[]                            lines;
+	/**
+	 * Null until the element gets parsed.
+	 */
+	private       AtomicReferenceArray<JsonObject> parsed;
+	/**
+	 * Elements that have been edited since the last save, so their line needs rewriting.
+	 */
+	private       boolean[]                        dirty;
+	private       int                              size;
+
+	/**
+	 * Finds every line that starts with "{", without parsing any of them yet.
+	 */
+	LazyElementList(LineIndex lineIndex, EditorStats stats) {
+		this.lineIndex = lineIndex;
+		this.stats = stats;
+		lines = new int[Math.max(16, lineIndex.size())];
+		for (int i = 0; i < lineIndex.size(); i++) {
+			if (lineIndex.startsWith(i, '{')) {
+				lines[size++] = i;
+			}
+		}
+		parsed = new AtomicReferenceArray<>(lines.length);
+		dirty = new boolean[lines.length];
+	}
+
+	/**
+	 * Parses the element's line if nobody has needed it yet. If a worker beat us to it, we use theirs.
+	 */
+	@Override
+	public JsonObject get(int index) {
+		checkIndex(index);
+		JsonObject element = parsed.get(index);
+		return element != null ? element : publish(index, parse(new JsonParser(), index));
+	}
+
+	@Override
+	public JsonObject set(int index, JsonObject element) {
+		JsonObject old = get(index);
+		parsed.set(index, element);
+		dirty[index] = true;
+		return old;
+	}
+
+	@Override
+	public void add(int index, JsonObject element) {
+		if (index < 0 || index > size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		if (size == lines.length) {
+			int newLength = lines.length + (lines.length >> 1);
+			lines = Arrays.copyOf(lines, newLength);
+			parsed = copyOf(parsed, newLength);
+			dirty = Arrays.copyOf(dirty, newLength);
+		}
+		System.arraycopy(lines, index, lines, index + 1, size - index);
+		for (int i = size; i > index; i--) {
+			parsed.set(i, parsed.get(i - 1));
+		}
+		System.arraycopy(dirty, index, dirty, index + 1, size - index);
+		lines[index] = -1;
+		parsed.set(index, element);
+		dirty[index] = true;
+		size++;
+		modCount++;
+	}
+
+	@Override
+	public JsonObject remove(int index) {
+		JsonObject old = get(index);
+		System.arraycopy(lines, index + 1, lines, index, size - index - 1);
+		for (int i = index; i < size - 1; i++) {
+			parsed.set(i, parsed.get(i + 1));
+		}
+		System.arraycopy(dirty, index + 1, dirty, index, size - index - 1);
+		size--;
+		parsed.set(size, null);
+		modCount++;
+		return old;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Parses every element that hasn't been parsed yet, splitting the lines into chunks across a fork-join pool.
+	 * Each chunk fills in its own slots, so the elements stay in the same order as the lines in the file.
+	 */
+	void parseAll(int parallelism) {
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			parseRange(0, size, pool);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Parses the elements from one index up to (not including) another on the pool. Only those slots get touched,
+	 * so another thread can safely use the other elements (or even parse the same ones), as long as nothing gets
+	 * added or removed.
+	 * If we're already one of the pool's workers (like when bulk editing a lot of files), we just pitch in.
+	 */
+	void parseRange(int from, int to, ForkJoinPool pool) {
+		ParseChunk chunk = new ParseChunk(from, to);
+		if (ForkJoinTask.getPool() == pool) {
+			chunk.invoke();
+		} else {
+			pool.invoke(chunk);
+		}
+	}
+
+	/**
+	 * Whether or not the element has been turned into a JsonObject yet. If it hasn't, it can't have been changed.
+	 */
+	boolean isParsed(int index) {
+		checkIndex(index);
+		return parsed.get(index) != null;
+	}
+
+	/**
+	 * Flags the element's line as needing to be rewritten on the next save.
+	 */
+	void markDirty(int index) {
+		checkIndex(index);
+		dirty[index] = true;
+	}
+
+	/**
+	 * Whether the element's line has to be re-serialized, either because it was edited or because it's new.
+	 */
+	boolean isDirty(int index) {
+		checkIndex(index);
+		return dirty[index] || lines[index] < 0;
+	}
+
+	/**
+	 * After a save, points everything at the newly written file. New elements were written after all of the
+	 * original lines, in order, so they get the lines from there on.
+	 */
+	void saved(LineIndex newIndex, int firstNewLine) {
+		lineIndex = newIndex;
+		for (int i = 0; i < size; i++) {
+			if (lines[i] < 0) {
+				lines[i] = firstNewLine++;
+			}
+			dirty[i] = false;
+		}
+	}
+
+	/**
+	 * Points everything at a newer version of the file. Elements whose lines are still there keep whatever we had
+	 * parsed for them, changed lines come already parsed, and everything else waits until it's needed.
+	 * Every element has to have come from the file. Returns where each old element ended up, or -1 if its line
+	 * is gone or changed.
+	 */
+	int[] reload(FileChange change) {
+		int[] elementAtOldLine = new int[lineIndex.size()];
+		Arrays.fill(elementAtOldLine, -1);
+		for (int i = 0; i < size; i++) {
+			if (lines[i] < 0) {
+				throw new IllegalStateException("Element " + i + " didn't come from the file");
+			}
+			elementAtOldLine[lines[i]] = i;
+		}
+
+		LineIndex newIndex = change.getNewIndex();
+		int[] moved = new int[size];
+		Arrays.fill(moved, -1);
+		int[] newLines = new int[Math.max(16, newIndex.size())];
+		AtomicReferenceArray<JsonObject> newParsed = new AtomicReferenceArray<>(newLines.length);
+		int newSize = 0;
+		for (int line = 0; line < newIndex.size(); line++) {
+			if (!newIndex.startsWith(line, '{')) {
+				continue;
+			}
+			int oldLine = change.getMatch(line);
+			int old = oldLine < 0 ? -1 : elementAtOldLine[oldLine];
+			if (old >= 0) {
+				newParsed.set(newSize, parsed.get(old));
+				moved[old] = newSize;
+			} else {
+				newParsed.set(newSize, change.getParsed(line));
+			}
+			newLines[newSize++] = line;
+		}
+
+		lineIndex = newIndex;
+		lines = newLines;
+		parsed = newParsed;
+		dirty = new boolean[newLines.length];
+		size = newSize;
+		modCount++;
+		return moved;
+	}
+
+	/**
+	 * The line of the file the element came from, or -1 if it was added after loading.
+	 */
+	int getLine(int index) {
+		checkIndex(index);
+		return lines[index];
+	}
+
+	/**
+	 * Parses the element's line, saying which line of the file it was if it's broken.
+	 */
+	private JsonObject parse(JsonParser parser, int index) {
+		try {
+			JsonObject object = (JsonObject) parser.parse(lineIndex.getLine(lines[index]));
+			stats.lineParsed();
+			return object;
+		} catch (JsonParseException e) {
+			throw new JsonParseException("Line " + lineIndex.getLineNumber(lines[index]) + " of the file: "
+					+ e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Puts a freshly parsed element in its slot, unless somebody else got there first, and returns whichever
+	 * one's in there.
+	 */
+	private JsonObject publish(int index, JsonObject element) {
+		return parsed.compareAndSet(index, null, element) ? element : parsed.get(index);
+	}
+
+	private static AtomicReferenceArray<JsonObject> copyOf(AtomicReferenceArray<JsonObject> array, int length) {
+		AtomicReferenceArray<JsonObject> copy = new AtomicReferenceArray<>(length);
+		for (int i = 0; i < Math.min(length, array.length()); i++) {
+			copy.set(i, array.get(i));
+		}
+		return copy;
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+	}
+
+	/**
+	 * Parses a range of elements, splitting it in half until it's small enough to just do.
+	 */
+	private class ParseChunk extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Small enough that a chunk doesn't hog a worker, big enough that splitting isn't all we do.
+		 */
+		private static final int CHUNK_SIZE = 256;
+
+		final private int from, to;
+
+		ParseChunk(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > CHUNK_SIZE) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new ParseChunk(from, middle), new ParseChunk(middle, to));
+				return;
+			}
+			JsonParser parser = new JsonParser(); //Every chunk gets its own, nothing shared between workers
+			for (int i = from; i < to; i++) {
+				if (parsed.get(i) == null && lines[i] >= 0) {
+					publish(i, parse(parser, i));
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,401 @@
+package sample;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Memory-maps a file and remembers where each line begins and ends, so we don't have to hold every line as a String.
+ * Lines are only decoded when something actually asks for them.
+ * For json that isn't one object per line (pretty-printed objects, or one big array of them), each object's bytes
+ * count as a "line" instead, and whatever's between them (brackets, commas, spacing) just stays where it is.
+ */
+class LineIndex {
+	/**
+	 * How the json in the file is laid out. LINES is one object per line, with anything else (comments, blank lines)
+	 * on lines of their own. DOCUMENT is objects one after another, at least the first spread over several lines.
+	 * ARRAY is a single top-level array, where the objects in it are the lines.
+	 */
+	enum Layout {
+		LINES, DOCUMENT, ARRAY
+	}
+
+	/**
+	 * The whole file. Lines nobody has asked for just stay in here as byte ranges.
+	 */
+	final private MappedByteBuffer buffer;
+	final private Path             path;
+	/**
+	 * Offset of the first byte of each line.
+	 */
+	private long[] starts;
+	/**
+	 * Offset just past the last byte of each line, not counting the line terminator.
+	 */
+	private long[] ends;
+	private int    lineCount;
+	/**
+	 * A hash of each line's bytes, for spotting which lines changed when the file gets rewritten. Worked out the
+	 * first time anybody asks, since not everybody needs them.
+	 */
+	private long[] hashes;
+	private Layout layout = Layout.LINES;
+	/**
+	 * For an ARRAY, just past its "[", which is where new objects go if it doesn't have any yet.
+	 */
+	private long   arrayStart;
+
+	private LineIndex(Path path, MappedByteBuffer buffer) {
+		this.path = path;
+		this.buffer = buffer;
+	}
+
+	/**
+	 * Maps the file where it is and finds all of the line boundaries in it, so nothing gets copied. A gzipped file
+	 * gets expanded into a temp file first, and that's what's mapped.
+	 * The mapping is shared with whoever else writes to the file, so something rewriting it in place changes the
+	 * bytes under lines we haven't read yet. Saving checks the file's size and modified time first, and won't write
+	 * over a version we didn't read.
+	 */
+	static LineIndex map(Path path) throws IOException {
+		if (!Gzip.isCompressed(path)) {
+			return map(path, path);
+		}
+		Path expanded = Gzip.expand(path);
+		try {
+			return map(path, expanded);
+		} finally {
+			Gzip.discard(expanded); //The mapping's all we need, where the file can be deleted while it's mapped
+		}
+	}
+
+	private static LineIndex map(Path path, Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException("File is too large to map: " + size + " bytes");
+			}
+			//The mapping stays valid after the channel is closed
+			LineIndex index = new LineIndex(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+			index.findLayout();
+			return index;
+		}
+	}
+
+	/**
+	 * Maps a file whose line positions we already know, like one we just wrote out ourselves, laid out the same as
+	 * the one it was written from. The bytes come from file, which is a temp file we wrote path's new contents to.
+	 */
+	static LineIndex map(Path path, Path file, long[] starts, long[] ends, int lineCount, LineIndex writtenFrom)
+			throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			LineIndex index = new LineIndex(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+			index.starts = starts;
+			index.ends = ends;
+			index.lineCount = lineCount;
+			index.layout = writtenFrom.layout;
+			index.arrayStart = writtenFrom.arrayStart; //Nothing before it ever changes
+			return index;
+		}
+	}
+
+	/**
+	 * Number of lines in the file. Same rules as Files.readAllLines, so a trailing line terminator doesn't count as
+	 * an extra empty line.
+	 */
+	int size() {
+		return lineCount;
+	}
+
+	Path getPath() {
+		return path;
+	}
+
+	Layout getLayout() {
+		return layout;
+	}
+
+	/**
+	 * For an ARRAY, just past its "[".
+	 */
+	long getArrayStart() {
+		return arrayStart;
+	}
+
+	/**
+	 * For an ARRAY, where a new object goes: after the last one, or just inside the "[" if there aren't any.
+	 */
+	long getAppendPoint() {
+		return lineCount > 0 ? ends[lineCount - 1] : arrayStart;
+	}
+
+	/**
+	 * Which line of the file (counting from 1) the line starts on, for error messages. The same thing for LINES,
+	 * but an object in a DOCUMENT or ARRAY has to go count.
+	 */
+	int getLineNumber(int line) {
+		if (layout == Layout.LINES) {
+			return line + 1;
+		}
+		int number = 1;
+		for (int i = 0; i < starts[line]; i++) {
+			byte b = buffer.get(i);
+			if (b == '\n' || (b == '\r' && (i + 1 == buffer.limit() || buffer.get(i + 1) != '\n'))) {
+				number++;
+			}
+		}
+		return number;
+	}
+
+	/**
+	 * Size of the whole file, line terminators and all.
+	 */
+	long getByteSize() {
+		return buffer.limit();
+	}
+
+	/**
+	 * Offset of the first byte of the line.
+	 */
+	long getStart(int line) {
+		return starts[line];
+	}
+
+	/**
+	 * Offset just past the last byte of the line, without its terminator.
+	 */
+	long getEnd(int line) {
+		return ends[line];
+	}
+
+	/**
+	 * Checks the first byte of the line without decoding any of it.
+	 */
+	boolean startsWith(int line, char c) {
+		return ends[line] > starts[line] && buffer.get((int) starts[line]) == c;
+	}
+
+	/**
+	 * A view of the raw bytes between the two offsets, without copying them out of the mapping.
+	 */
+	ByteBuffer slice(long from, long to) {
+		ByteBuffer view = buffer.duplicate();
+		view.position((int) from);
+		view.limit((int) to);
+		return view.slice();
+	}
+
+	/**
+	 * Decodes the line into a String.
+	 */
+	String getLine(int line) {
+		ByteBuffer view = slice(starts[line], ends[line]); //Own position, so this doesn't trip anybody else up
+		byte[] bytes = new byte[view.remaining()];
+		view.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Hashes every line now, while the mapping still has what we loaded. Something rewriting the file in place
+	 * changes what's mapped, so if we waited, we'd be hashing the new version instead of ours.
+	 */
+	void computeHashes() {
+		hashes();
+	}
+
+	/**
+	 * Lines up a newer version of the file against this one. For every line in the newer one, gives the line it
+	 * was in this one, or -1 if it's new or changed. Lines that are the same at the start and end get paired up
+	 * in place. In between, each line takes the first unused line of ours with the same bytes, so lines that
+	 * moved around still count.
+	 */
+	int[] match(LineIndex newer) {
+		long[] oldHashes = hashes(), newHashes = newer.hashes();
+		int[] matches = new int[newer.lineCount];
+		int prefix = 0;
+		while (prefix < lineCount && prefix < newer.lineCount && isSameLine(prefix, newer, prefix)) {
+			matches[prefix] = prefix;
+			prefix++;
+		}
+		int oldEnd = lineCount, newEnd = newer.lineCount;
+		while (oldEnd > prefix && newEnd > prefix && isSameLine(oldEnd - 1, newer, newEnd - 1)) {
+			matches[--newEnd] = --oldEnd;
+		}
+
+		Map<Long, ArrayDeque<Integer>> unmatched = new HashMap<>();
+		for (int line = prefix; line < oldEnd; line++) {
+			unmatched.computeIfAbsent(oldHashes[line], hash -> new ArrayDeque<>()).add(line);
+		}
+		for (int line = prefix; line < newEnd; line++) {
+			ArrayDeque<Integer> candidates = unmatched.get(newHashes[line]);
+			if (candidates != null && !candidates.isEmpty() && isSameLine(candidates.peek(), newer, line)) {
+				matches[line] = candidates.poll();
+			} else {
+				matches[line] = -1;
+			}
+		}
+		return matches;
+	}
+
+	/**
+	 * Same hash and same length is good enough for us. Both sides have to have been hashed already.
+	 */
+	private boolean isSameLine(int line, LineIndex other, int otherLine) {
+		return hashes[line] == other.hashes[otherLine]
+				&& ends[line] - starts[line] == other.ends[otherLine] - other.starts[otherLine];
+	}
+
+	/**
+	 * FNV-1a over each line's bytes. Synchronized, since this can happen off the UI thread.
+	 */
+	private synchronized long[] hashes() {
+		if (hashes == null) {
+			long[] lineHashes = new long[lineCount];
+			for (int line = 0; line < lineCount; line++) {
+				long hash = 0xcbf29ce484222325L;
+				for (int i = (int) starts[line]; i < ends[line]; i++) {
+					hash = (hash ^ (buffer.get(i) & 0xff)) * 0x100000001b3L;
+				}
+				lineHashes[line] = hash;
+			}
+			hashes = lineHashes;
+		}
+		return hashes;
+	}
+
+	/**
+	 * Works out how the file's laid out from how it starts, then finds its lines. A file that starts with an object
+	 * that's all on one line is taken to be one object per line, like always.
+	 */
+	private void findLayout() {
+		int first = 0;
+		while (first < buffer.limit() && isSpace(buffer.get(first))) {
+			first++;
+		}
+		if (first < buffer.limit() && buffer.get(first) == '[') {
+			layout = Layout.ARRAY;
+			arrayStart = first + 1;
+			findObjects(first + 1, 1);
+		} else if (first < buffer.limit() && buffer.get(first) == '{' && !endsOnSameLine(first)) {
+			layout = Layout.DOCUMENT;
+			findObjects(first, 0);
+		} else {
+			findLines();
+		}
+	}
+
+	/**
+	 * Whether the object starting there closes before the line it starts on does.
+	 */
+	private boolean endsOnSameLine(int start) {
+		int depth = 0;
+		boolean inString = false;
+		for (int i = start; i < buffer.limit(); i++) {
+			byte b = buffer.get(i);
+			if (inString) {
+				if (b == '\\') {
+					i++;
+				} else if (b == '"') {
+					inString = false;
+				}
+			} else if (b == '"') {
+				inString = true;
+			} else if (b == '{' || b == '[') {
+				depth++;
+			} else if ((b == '}' || b == ']') && --depth == 0) {
+				return true;
+			} else if (b == '\n' || b == '\r') {
+				return false;
+			}
+		}
+		return true; //Broken, but the line-by-line parse can say so
+	}
+
+	/**
+	 * Walks the mapping once, keeping track of how deep into brackets we are (and skipping over strings), and
+	 * records where every object at the given depth starts and ends. Anything else at that depth (like numbers in
+	 * the array) gets left between the lines. For an ARRAY, we stop at its closing "]".
+	 */
+	private void findObjects(int from, int depth) {
+		int size = buffer.limit();
+		starts = new long[16];
+		ends = new long[starts.length];
+		int level = depth;
+		int objectStart = -1;
+		boolean inString = false;
+		for (int i = from; i < size; i++) {
+			byte b = buffer.get(i);
+			if (inString) {
+				if (b == '\\') {
+					i++;
+				} else if (b == '"') {
+					inString = false;
+				}
+			} else if (b == '"') {
+				inString = true;
+			} else if (b == '{' || b == '[') {
+				if (level == depth && b == '{') {
+					objectStart = i;
+				}
+				level++;
+			} else if (b == '}' || b == ']') {
+				level--;
+				if (level == depth && objectStart >= 0) {
+					addLine(objectStart, i + 1);
+					objectStart = -1;
+				} else if (level < depth) {
+					return; //The end of the array
+				}
+			}
+		}
+		if (objectStart >= 0) { //Never closed, so let parsing it say what's wrong
+			addLine(objectStart, size);
+		}
+	}
+
+	private static boolean isSpace(byte b) {
+		return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+	}
+
+	/**
+	 * Walks the mapping once and records where every line starts and ends. Handles \n, \r\n and \r.
+	 */
+	private void findLines() {
+		int size = buffer.limit();
+		starts = new long[Math.max(16, size / 64)]; //Just a guess, we'll grow if the lines are shorter than that
+		ends = new long[starts.length];
+		int lineStart = 0;
+		for (int i = 0; i < size; i++) {
+			byte b = buffer.get(i);
+			if (b == '\n' || b == '\r') {
+				addLine(lineStart, i);
+				if (b == '\r' && i + 1 < size && buffer.get(i + 1) == '\n') {
+					i++;
+				}
+				lineStart = i + 1;
+			}
+		}
+		if (lineStart < size) { //Last line doesn't need a terminator
+			addLine(lineStart, size);
+		}
+	}
+
+	private void addLine(long start, long end) {
+		if (lineCount == starts.length) {
+			int newLength = starts.length + (starts.length >> 1);
+			starts = Arrays.copyOf(starts, newLength);
+			ends = Arrays.copyOf(ends, newLength);
+		}
+		starts[lineCount] = start;
+		ends[lineCount] = end;
+		lineCount++;
+	}
+}
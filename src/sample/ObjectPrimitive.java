@@ -1,5 +1,6 @@
 package sample;
 
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonPrimitive;
 
@@ -11,14 +12,29 @@ public class ObjectPrimitive extends JsonEditorPrimitive {
 	final private JsonObject parent;
 	final private String key;
 
-	ObjectPrimitive(JsonPrimitive old, JsonObject parent, String key) {
-		super(old);
+	ObjectPrimitive(JsonPrimitive old, JsonObject parent, String key, int elementIndex, String path, FileString inFile) {
+		super(old, elementIndex, path, inFile);
 		this.key = key;
 		this.parent = parent;
 	}
 
 	@Override
-	void setNew(String string) {
-		parent.add(key, getNewPrimitive(string));
+	void set(JsonElement element) {
+		parent.add(key, element);
+	}
+
+	@Override
+	boolean isAt(JsonElement parent, Object slot) {
+		return this.parent == parent && key.equals(slot);
+	}
+
+	@Override
+	JsonElement getParent() {
+		return parent;
+	}
+
+	@Override
+	JsonElement getCurrent() {
+		return parent.get(key);
 	}
 }
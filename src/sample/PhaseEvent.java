@@ -0,0 +1,41 @@
+package sample;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * One stretch of the editor doing something to a file (reading, parsing, walking, showing or saving it), for
+ * Flight Recorder. Costs next to nothing unless a recording is asking for it. Start a recording with
+ * -XX:StartFlightRecording or jcmd and these show up under Json Editor.
+ */
+@Name("sample.Phase")
+@Label("Editor Phase")
+@Category("Json Editor")
+@Description("Time spent reading, parsing, walking, showing or saving a file")
+class PhaseEvent extends Event {
+	@Label("File")
+	String file;
+
+	@Label("Phase")
+	String phase;
+
+	@Label("Count")
+	@Description("Lines read or parsed, fields walked, rows shown or lines saved")
+	long count;
+
+	@Label("Bytes")
+	@DataAmount
+	long bytes;
+
+	@Label("Heap Before")
+	@DataAmount
+	long heapBefore;
+
+	@Label("Heap After")
+	@DataAmount
+	long heapAfter;
+}
@@ -0,0 +1,462 @@
+package sample;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+/**
+ * Every json resource file under the project root, with its size, when it was modified, and the top-level keys in
+ * it, so you can just type a test name and pick the file instead of hunting for its path.
+ * Crawled in parallel, and kept on disk (in our data directory, not the project) so next time only the files that
+ * changed since get read again.
+ */
+class ResourceIndex {
+	private static final int    MAGIC       = 0x4a45_4958; //"JEIX"
+	private static final int    VERSION     = 2;
+	/**
+	 * Only this many keys get kept per file. Resource files tend to use the same few on every line anyway.
+	 */
+	private static final int    MAX_KEYS    = 64;
+	/**
+	 * Only this many objects (lines, for .jsonl), or this many bytes, get read per file looking for keys. A file
+	 * that uses the same few keys on every line would otherwise get read end to end without finding any more.
+	 */
+	private static final int    MAX_OBJECTS = 500;
+	private static final long   MAX_BYTES   = 4 * 1024 * 1024;
+
+	final private Path                        root;
+	/**
+	 * Sorted by path. Names and paths are lower-cased up front, so suggesting doesn't have to do it every time.
+	 */
+	final private List<Entry>                 entries;
+	final private String[]                    lowerNames;
+	final private String[]                    lowerPaths;
+	/**
+	 * Which files have each (lower-cased) top-level key, by their place in entries.
+	 */
+	final private Map<String, List<Integer>>  byKey = new HashMap<>();
+	final private int                         rescanned;
+
+	private ResourceIndex(Path root, List<Entry> entries, int rescanned) {
+		this.root = root;
+		this.entries = entries;
+		this.rescanned = rescanned;
+		lowerNames = new String[entries.size()];
+		lowerPaths = new String[entries.size()];
+		for (int i = 0; i < entries.size(); i++) {
+			Entry entry = entries.get(i);
+			lowerNames[i] = baseName(entry.path).toLowerCase(Locale.ROOT);
+			lowerPaths[i] = entry.path.toLowerCase(Locale.ROOT);
+			for (String key : entry.keys) {
+				byKey.computeIfAbsent(key.toLowerCase(Locale.ROOT), k -> new ArrayList<>()).add(i);
+			}
+		}
+	}
+
+	/**
+	 * Crawls the project, reading only files that are new or changed since the index on disk was saved, then saves
+	 * it again. Not being able to save just means everything gets read again next time.
+	 */
+	static ResourceIndex build(Path root, int parallelism) throws IOException {
+		Path indexFile = getIndexFile(root);
+		Map<String, Entry> previous = load(indexFile, root);
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		List<Entry> entries;
+		try {
+			entries = pool.invoke(new Crawl(root, root, previous));
+		} finally {
+			pool.shutdown();
+		}
+		Collections.sort(entries, (a, b) -> a.path.compareTo(b.path));
+		int rescanned = 0;
+		for (Entry entry : entries) {
+			if (entry.scanned) {
+				rescanned++;
+			}
+		}
+		ResourceIndex index = new ResourceIndex(root, entries, rescanned);
+		if (rescanned > 0 || entries.size() != previous.size()) {
+			try {
+				index.save(indexFile);
+			} catch (IOException ignored) {
+				//Read-only home or similar, we still have it in memory
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Up to limit files matching what's been typed, best first: names starting with it, then files with it as a
+	 * top-level key, then names containing it, then paths containing it.
+	 */
+	List<Path> suggest(String text, int limit) {
+		List<Path> suggestions = new ArrayList<>();
+		String lowerText = text.trim().toLowerCase(Locale.ROOT);
+		if (lowerText.isEmpty() || limit <= 0) {
+			return suggestions;
+		}
+		boolean[] taken = new boolean[entries.size()];
+		for (int i = 0; i < lowerNames.length && suggestions.size() < limit; i++) {
+			if (lowerNames[i].startsWith(lowerText)) {
+				take(i, taken, suggestions);
+			}
+		}
+		for (int i : byKey.getOrDefault(lowerText, Collections.emptyList())) {
+			if (suggestions.size() >= limit) {
+				break;
+			}
+			if (!taken[i]) {
+				take(i, taken, suggestions);
+			}
+		}
+		for (int i = 0; i < lowerNames.length && suggestions.size() < limit; i++) {
+			if (!taken[i] && lowerNames[i].contains(lowerText)) {
+				take(i, taken, suggestions);
+			}
+		}
+		String lowerPath = lowerText.replace('\\', '/');
+		for (int i = 0; i < lowerPaths.length && suggestions.size() < limit; i++) {
+			if (!taken[i] && lowerPaths[i].contains(lowerPath)) {
+				take(i, taken, suggestions);
+			}
+		}
+		return suggestions;
+	}
+
+	/**
+	 * The one file that's named that (ignoring the extension), or failing that the one file with it as a top-level
+	 * key. Null if there isn't exactly one.
+	 */
+	Path find(String name) {
+		String lowerName = name.trim().toLowerCase(Locale.ROOT);
+		int found = -1;
+		for (int i = 0; i < lowerNames.length; i++) {
+			if (lowerNames[i].equals(lowerName)) {
+				if (found >= 0) {
+					return null;
+				}
+				found = i;
+			}
+		}
+		if (found < 0) {
+			List<Integer> withKey = byKey.get(lowerName);
+			if (withKey == null || withKey.size() != 1) {
+				return null;
+			}
+			found = withKey.get(0);
+		}
+		return resolve(entries.get(found));
+	}
+
+	/**
+	 * Every file, in path order.
+	 */
+	List<Path> getFiles() {
+		List<Path> files = new ArrayList<>(entries.size());
+		for (Entry entry : entries) {
+			files.add(resolve(entry));
+		}
+		return files;
+	}
+
+	/**
+	 * How many files there are.
+	 */
+	int size() {
+		return entries.size();
+	}
+
+	/**
+	 * How many files had to be read this time, because they were new or had changed.
+	 */
+	int getRescanned() {
+		return rescanned;
+	}
+
+	Path getRoot() {
+		return root;
+	}
+
+	private void take(int i, boolean[] taken, List<Path> suggestions) {
+		taken[i] = true;
+		suggestions.add(resolve(entries.get(i)));
+	}
+
+	private Path resolve(Entry entry) {
+		return root.resolve(entry.path);
+	}
+
+	/**
+	 * Where the index for a root gets kept, named after a hash of the root's path. The path itself goes in the file
+	 * too, so two roots that hash the same just read each other's as missing.
+	 */
+	private static Path getIndexFile(Path root) {
+		String name = Integer.toHexString(root.toAbsolutePath().normalize().toString().hashCode());
+		return EditorSettings.getDataDirectory().resolve("index-" + name);
+	}
+
+	private void save(Path indexFile) throws IOException {
+		Files.createDirectories(indexFile.getParent());
+		Path temp = Files.createTempFile(indexFile.getParent(), indexFile.getFileName().toString(), ".tmp");
+		try {
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeUTF(root.toAbsolutePath().normalize().toString());
+				out.writeInt(entries.size());
+				for (Entry entry : entries) {
+					out.writeUTF(entry.path);
+					out.writeLong(entry.size);
+					out.writeLong(entry.modified);
+					out.writeShort(entry.keys.length);
+					for (String key : entry.keys) {
+						out.writeUTF(key);
+					}
+				}
+			}
+			Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	/**
+	 * What the index on disk had, by path. Empty if there isn't one, or it's from some other version or root.
+	 */
+	private static Map<String, Entry> load(Path indexFile, Path root) {
+		Map<String, Entry> previous = new HashMap<>();
+		if (!Files.isRegularFile(indexFile)) {
+			return previous;
+		}
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION
+					|| !in.readUTF().equals(root.toAbsolutePath().normalize().toString())) {
+				return previous;
+			}
+			int count = in.readInt();
+			for (int i = 0; i < count; i++) {
+				String path = in.readUTF();
+				long size = in.readLong();
+				long modified = in.readLong();
+				String[] keys = new String[in.readShort()];
+				for (int k = 0; k < keys.length; k++) {
+					keys[k] = in.readUTF();
+				}
+				previous.put(path, new Entry(path, size, modified, keys, false));
+			}
+		} catch (IOException e) {
+			previous.clear(); //Half an index is no better than none
+		}
+		return previous;
+	}
+
+	static boolean isResourceFile(String fileName) {
+		String lower = fileName.toLowerCase(Locale.ROOT);
+		if (lower.endsWith(".gz")) {
+			lower = lower.substring(0, lower.length() - 3);
+		}
+		return lower.endsWith(".json") || lower.endsWith(".jsonl");
+	}
+
+	private static String baseName(String path) {
+		String name = path.substring(path.lastIndexOf('/') + 1);
+		int dot = name.lastIndexOf('.');
+		return dot > 0 ? name.substring(0, dot) : name;
+	}
+
+	/**
+	 * The top-level keys of the objects at the start of the file, in the order they first show up. Works for one
+	 * object per line, a single object, or an array of them. Whatever's after something that isn't json, or past
+	 * where we stop looking, just gets left out.
+	 */
+	private static String[] readKeys(Path file) {
+		Set<String> keys = new LinkedHashSet<>();
+		try (Reader reader = new InputStreamReader(new Head(Gzip.open(file), MAX_BYTES), StandardCharsets.UTF_8)) {
+			JsonReader json = new JsonReader(reader);
+			json.setLenient(true); //Lets it read one value after another
+			for (int objects = 0; objects < MAX_OBJECTS && keys.size() < MAX_KEYS; objects++) {
+				JsonToken token = json.peek();
+				if (token == JsonToken.END_DOCUMENT) {
+					break;
+				}
+				if (token == JsonToken.BEGIN_ARRAY) { //The objects in it count the same as lines
+					json.beginArray();
+					continue;
+				}
+				if (token == JsonToken.END_ARRAY) {
+					json.endArray();
+					continue;
+				}
+				if (token != JsonToken.BEGIN_OBJECT) {
+					json.skipValue();
+					continue;
+				}
+				json.beginObject();
+				while (json.hasNext()) {
+					keys.add(json.nextName());
+					json.skipValue();
+				}
+				json.endObject();
+			}
+		} catch (IOException | RuntimeException ignored) {
+			//Broken json, or unreadable. Keep what we got
+		}
+		List<String> kept = new ArrayList<>(keys);
+		return kept.subList(0, Math.min(kept.size(), MAX_KEYS)).toArray(new String[0]);
+	}
+
+	/**
+	 * Only lets the first so many bytes of a stream through, then acts like that's where it ends.
+	 */
+	private static class Head extends FilterInputStream {
+		private long left;
+
+		Head(InputStream in, long limit) {
+			super(in);
+			left = limit;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (left <= 0) {
+				return -1;
+			}
+			int b = super.read();
+			if (b >= 0) {
+				left--;
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (left <= 0) {
+				return -1;
+			}
+			int read = super.read(b, off, (int) Math.min(len, left));
+			if (read > 0) {
+				left -= read;
+			}
+			return read;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = super.skip(Math.min(n, left));
+			left -= skipped;
+			return skipped;
+		}
+	}
+
+	/**
+	 * One directory: files get checked here, subdirectories get forked. Hidden directories (.git and friends) and
+	 * symbolic links are skipped.
+	 */
+	private static class Crawl extends RecursiveTask<List<Entry>> {
+		private static final long serialVersionUID = 1L;
+
+		final private Path               root;
+		final private Path               directory;
+		final private Map<String, Entry> previous;
+
+		Crawl(Path root, Path directory, Map<String, Entry> previous) {
+			this.root = root;
+			this.directory = directory;
+			this.previous = previous;
+		}
+
+		@Override
+		protected List<Entry> compute() {
+			List<Entry> found = new ArrayList<>();
+			List<Crawl> subdirectories = new ArrayList<>();
+			try (DirectoryStream<Path> children = Files.newDirectoryStream(directory)) {
+				for (Path child : children) {
+					String name = child.getFileName().toString();
+					BasicFileAttributes attributes;
+					try {
+						attributes = Files.readAttributes(child, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+					} catch (IOException e) {
+						continue; //Deleted while we were looking
+					}
+					if (attributes.isDirectory()) {
+						if (!name.startsWith(".")) {
+							Crawl crawl = new Crawl(root, child, previous);
+							crawl.fork();
+							subdirectories.add(crawl);
+						}
+					} else if (attributes.isRegularFile() && isResourceFile(name)) {
+						found.add(check(child, attributes));
+					}
+				}
+			} catch (IOException ignored) {
+				//Can't read it, so there's nothing in it as far as we're concerned
+			}
+			for (Crawl crawl : subdirectories) {
+				found.addAll(crawl.join());
+			}
+			return found;
+		}
+
+		/**
+		 * Reuses what we had if the file hasn't changed, otherwise reads it.
+		 */
+		private Entry check(Path file, BasicFileAttributes attributes) {
+			String path = root.relativize(file).toString().replace('\\', '/');
+			long size = attributes.size();
+			long modified = attributes.lastModifiedTime().toMillis();
+			Entry old = previous.get(path);
+			if (old != null && old.size == size && old.modified == modified) {
+				return old;
+			}
+			return new Entry(path, size, modified, readKeys(file), true);
+		}
+	}
+
+	private static class Entry {
+		/**
+		 * Relative to the root, with / between folders.
+		 */
+		final private String   path;
+		final private long     size;
+		final private long     modified;
+		final private String[] keys;
+		/**
+		 * If we had to read it this time.
+		 */
+		final private boolean  scanned;
+
+		Entry(String path, long size, long modified, String[] keys, boolean scanned) {
+			this.path = path;
+			this.size = size;
+			this.modified = modified;
+			this.keys = keys;
+			this.scanned = scanned;
+		}
+	}
+}
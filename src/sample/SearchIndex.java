@@ -0,0 +1,402 @@
+package sample;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Which fields have which keys, which words are in their values, and which line they're on, so searching doesn't
+ * mean going through every field. Filled in as the tree gets walked, and kept up to date as fields are edited.
+ * Fields are known by their field table index.
+ */
+class SearchIndex {
+	/**
+	 * Fields by lower-cased key.
+	 */
+	final private Map<String, Postings>     keys   = new HashMap<>();
+	/**
+	 * Fields by the lower-cased words in their values. Sorted, so we can find every word starting with something.
+	 */
+	final private TreeMap<String, Postings> tokens = new TreeMap<>();
+	/**
+	 * What each field is indexed as right now, so we know what to take out when it changes.
+	 */
+	private       String[]                  fieldKeys   = new String[16];
+	private       String[]                  fieldValues = new String[16];
+	private       int                       size;
+	/**
+	 * The range of fields each line (element) has, or -1 for a line that hasn't been walked.
+	 */
+	private       int[]                     lineStarts  = new int[16];
+	private       int[]                     lineEnds    = new int[16];
+	private       int                       lineCount;
+
+	/**
+	 * Indexes the field under its key and value, replacing whatever it was indexed as before. Fields have to be
+	 * set in order the first time; after that, setting one that hasn't changed costs next to nothing.
+	 */
+	void set(int field, String key, String value) {
+		if (field < size) {
+			if (fieldKeys[field] != null && fieldKeys[field].equals(key) && Objects.equals(fieldValues[field], value)) {
+				return;
+			}
+			unindex(field);
+		} else if (field == size) {
+			if (size == fieldKeys.length) {
+				fieldKeys = Arrays.copyOf(fieldKeys, size + (size >> 1));
+				fieldValues = Arrays.copyOf(fieldValues, fieldKeys.length);
+			}
+			size++;
+		} else {
+			throw new IndexOutOfBoundsException("Field " + field + " is past the end (" + size + ")");
+		}
+		fieldKeys[field] = key;
+		fieldValues[field] = value;
+		keys.computeIfAbsent(key.toLowerCase(Locale.ROOT), k -> new Postings()).add(field);
+		for (String token : indexedWords(value)) {
+			tokens.computeIfAbsent(token, t -> new Postings()).add(field);
+		}
+	}
+
+	/**
+	 * Takes the field out of the index, for when its line is gone. It can be set again if the line comes back.
+	 */
+	void remove(int field) {
+		if (field < size) {
+			unindex(field);
+			fieldKeys[field] = null;
+			fieldValues[field] = null;
+		}
+	}
+
+	/**
+	 * Marks which fields a line has. Lines can come in any order.
+	 */
+	void setLine(int line, int start, int end) {
+		if (line >= lineStarts.length) {
+			int length = Math.max(line + 1, lineStarts.length + (lineStarts.length >> 1));
+			lineStarts = Arrays.copyOf(lineStarts, length);
+			lineEnds = Arrays.copyOf(lineEnds, length);
+		}
+		for (int skipped = lineCount; skipped < line; skipped++) {
+			lineStarts[skipped] = -1;
+		}
+		lineStarts[line] = start;
+		lineEnds[line] = end;
+		lineCount = Math.max(lineCount, line + 1);
+	}
+
+	/**
+	 * Every line from this one on is gone.
+	 */
+	void removeLinesFrom(int line) {
+		lineCount = Math.min(lineCount, line);
+	}
+
+	/**
+	 * Forgets everything, for when the elements have been swapped out from under us.
+	 */
+	void clear() {
+		keys.clear();
+		tokens.clear();
+		Arrays.fill(fieldKeys, 0, size, null);
+		Arrays.fill(fieldValues, 0, size, null);
+		size = 0;
+		lineCount = 0;
+	}
+
+	/**
+	 * Finds the fields matching every term of the query. Terms are separated by spaces, and can be quoted:
+	 * <ul>
+	 * <li>key=walletId - the key is exactly that (ignoring case), key~wallet - the key contains that</li>
+	 * <li>value="some thing" - the value is exactly that, value~abc - the value has a word starting with each of
+	 * the words in that</li>
+	 * <li>line=12 - the field is in that line</li>
+	 * <li>anything else - the key contains it or the value has a word starting with it</li>
+	 * </ul>
+	 * Throws IllegalArgumentException if a term doesn't make sense.
+	 */
+	BitSet search(String query) {
+		BitSet result = null;
+		for (String term : splitTerms(query)) {
+			BitSet matches = match(term);
+			if (result == null) {
+				result = matches;
+			} else {
+				result.and(matches);
+			}
+		}
+		return result == null ? new BitSet() : result;
+	}
+
+	private BitSet match(String term) {
+		int equals = term.indexOf('='), tilde = term.indexOf('~');
+		int split = equals < 0 ? tilde : tilde < 0 ? equals : Math.min(equals, tilde);
+		if (split < 0) {
+			BitSet matches = keysContaining(unquote(term));
+			matches.or(valuesWithWords(unquote(term)));
+			return matches;
+		}
+		String field = term.substring(0, split).toLowerCase(Locale.ROOT);
+		String text = unquote(term.substring(split + 1));
+		boolean exact = split == equals;
+		switch (field) {
+			case "key":
+				return exact ? keyEquals(text) : keysContaining(text);
+			case "value":
+				return exact ? valueEquals(text) : valuesWithWords(text);
+			case "line":
+				return line(text);
+			default:
+				throw new IllegalArgumentException("Can't search by \"" + field + "\", try key, value or line.");
+		}
+	}
+
+	private BitSet keyEquals(String key) {
+		BitSet matches = new BitSet();
+		Postings postings = keys.get(key.toLowerCase(Locale.ROOT));
+		if (postings != null) {
+			postings.addTo(matches);
+		}
+		return matches;
+	}
+
+	/**
+	 * There aren't usually many different keys, so just checking each one is fine.
+	 */
+	private BitSet keysContaining(String text) {
+		String lowerText = text.toLowerCase(Locale.ROOT);
+		BitSet matches = new BitSet();
+		for (Map.Entry<String, Postings> key : keys.entrySet()) {
+			if (key.getKey().contains(lowerText)) {
+				key.getValue().addTo(matches);
+			}
+		}
+		return matches;
+	}
+
+	/**
+	 * Fields with a word starting with each word of the text.
+	 */
+	private BitSet valuesWithWords(String text) {
+		BitSet result = null;
+		for (String word : tokenize(text)) {
+			BitSet matches = new BitSet();
+			for (Postings postings : tokens.subMap(word, true, word + Character.MAX_VALUE, true).values()) {
+				postings.addTo(matches);
+			}
+			if (result == null) {
+				result = matches;
+			} else {
+				result.and(matches);
+			}
+		}
+		return result == null ? new BitSet() : result;
+	}
+
+	/**
+	 * Narrows it down to fields with all the same words, then checks those for real.
+	 */
+	private BitSet valueEquals(String value) {
+		BitSet result = null;
+		for (String token : tokenize(value)) {
+			BitSet matches = new BitSet();
+			Postings postings = tokens.get(token);
+			if (postings != null) {
+				postings.addTo(matches);
+			}
+			if (result == null) {
+				result = matches;
+			} else {
+				result.and(matches);
+			}
+		}
+		if (result == null) { //Nothing but punctuation, so there's nothing to narrow it down with
+			result = new BitSet();
+			result.set(0, size);
+		}
+		for (int i = result.nextSetBit(0); i >= 0; i = result.nextSetBit(i + 1)) {
+			if (!value.equals(fieldValues[i])) {
+				result.clear(i);
+			}
+		}
+		return result;
+	}
+
+	private BitSet line(String text) {
+		int line;
+		try {
+			line = Integer.parseInt(text);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Not a line number: " + text);
+		}
+		BitSet matches = new BitSet();
+		if (line >= 0 && line < lineCount && lineStarts[line] >= 0) {
+			matches.set(lineStarts[line], lineEnds[line]);
+		}
+		return matches;
+	}
+
+	private void unindex(int field) {
+		if (fieldKeys[field] == null) {
+			return; //Already taken out
+		}
+		remove(keys, fieldKeys[field].toLowerCase(Locale.ROOT), field);
+		for (String token : indexedWords(fieldValues[field])) {
+			remove(tokens, token, field);
+		}
+	}
+
+	/**
+	 * Takes the field out of the postings, and the postings out of the map if that was the last of them, so
+	 * searching by prefix doesn't have to wade through words nobody has anymore.
+	 */
+	private static void remove(Map<String, Postings> map, String word, int field) {
+		Postings postings = map.get(word);
+		if (postings != null && postings.remove(field) && postings.isEmpty()) {
+			map.remove(word);
+		}
+	}
+
+	/**
+	 * The words a value gets found by. Only the start of a large value counts, since the rest is usually some encoded
+	 * blob nobody searches for, and splitting it all up would mean another copy of it.
+	 */
+	private static List<String> indexedWords(String value) {
+		int largeValue = EditorSettings.getLargeValueChars();
+		return tokenize(value != null && value.length() > largeValue ? value.substring(0, largeValue) : value);
+	}
+
+	/**
+	 * Lower-cased runs of letters and digits. A value of null (like a field set to null) doesn't have any.
+	 */
+	private static List<String> tokenize(String value) {
+		List<String> words = new ArrayList<>();
+		if (value == null) {
+			return words;
+		}
+		int start = -1;
+		for (int i = 0; i <= value.length(); i++) {
+			boolean wordChar = i < value.length() && Character.isLetterOrDigit(value.charAt(i));
+			if (wordChar && start < 0) {
+				start = i;
+			} else if (!wordChar && start >= 0) {
+				words.add(value.substring(start, i).toLowerCase(Locale.ROOT));
+				start = -1;
+			}
+		}
+		return words;
+	}
+
+	/**
+	 * Splits on spaces, except inside double quotes.
+	 */
+	private static List<String> splitTerms(String query) {
+		List<String> terms = new ArrayList<>();
+		StringBuilder term = new StringBuilder();
+		boolean quoted = false;
+		for (char c : query.toCharArray()) {
+			if (c == '"') {
+				quoted = !quoted;
+				term.append(c);
+			} else if (Character.isWhitespace(c) && !quoted) {
+				if (term.length() > 0) {
+					terms.add(term.toString());
+					term.setLength(0);
+				}
+			} else {
+				term.append(c);
+			}
+		}
+		if (term.length() > 0) {
+			terms.add(term.toString());
+		}
+		return terms;
+	}
+
+	private static String unquote(String text) {
+		return text.length() >= 2 && text.startsWith("\"") && text.endsWith("\"") ? text.substring(1, text.length() - 1) : text;
+	}
+
+	/**
+	 * The fields with some word or key. Starts out as a sorted array, which is small for a word only a few fields
+	 * have, and just an append while fields get added in order. Once the array would take more room than a bit for
+	 * every field up to its last one, it turns into a BitSet, so a key that every line has (like "id") costs the
+	 * same to update wherever the field is, instead of shifting everything after it.
+	 */
+	private static class Postings {
+		private static final int MIN_BITS = 64;
+
+		private int[]  fields = new int[4];
+		private int    size;
+		/**
+		 * Every field, once there are enough of them. fields is null from then on.
+		 */
+		private BitSet bits;
+
+		void add(int field) {
+			if (bits != null) {
+				if (!bits.get(field)) {
+					bits.set(field);
+					size++;
+				}
+				return;
+			}
+			int at = size > 0 && fields[size - 1] < field ? size : Arrays.binarySearch(fields, 0, size, field);
+			if (at >= 0 && at < size) {
+				return; //Already have it
+			}
+			at = at < 0 ? -at - 1 : at;
+			if (size == fields.length) {
+				fields = Arrays.copyOf(fields, size + (size >> 1) + 1);
+			}
+			System.arraycopy(fields, at, fields, at + 1, size - at);
+			fields[at] = field;
+			size++;
+			if (size >= MIN_BITS && (long) size * Integer.SIZE >= fields[size - 1]) {
+				BitSet all = new BitSet(fields[size - 1] + 1);
+				addTo(all);
+				bits = all;
+				fields = null;
+			}
+		}
+
+		boolean remove(int field) {
+			if (bits != null) {
+				if (!bits.get(field)) {
+					return false;
+				}
+				bits.clear(field);
+				size--;
+				return true;
+			}
+			int at = Arrays.binarySearch(fields, 0, size, field);
+			if (at < 0) {
+				return false;
+			}
+			System.arraycopy(fields, at + 1, fields, at, size - at - 1);
+			size--;
+			return true;
+		}
+
+		boolean isEmpty() {
+			return size == 0;
+		}
+
+		void addTo(BitSet set) {
+			if (bits != null) {
+				set.or(bits);
+				return;
+			}
+			for (int i = 0; i < size; i++) {
+				set.set(fields[i]);
+			}
+		}
+	}
+}
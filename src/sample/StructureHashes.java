@@ -0,0 +1,201 @@
+package sample;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+/**
+ * A hash of every object and array, made from the hashes of what's in it, so two of them with the same hash are
+ * (as good as) the same. Worked out the first time anybody asks, then kept. When a primitive changes, only the
+ * objects and arrays it's inside have to forget theirs, so keeping them up to date costs as much as the path down to
+ * the change. Comparing two lines only looks inside objects and arrays whose hashes differ.
+ */
+class StructureHashes {
+	private static final long OBJECT = 0x6f626a656374L, ARRAY = 0x6172726179L, NULL = 0x6e756c6cL;
+	private static final long STRING = 0x737472L, NUMBER = 0x6e756dL, BOOLEAN = 0x626f6f6cL;
+
+	/**
+	 * By the object or array itself, not what's in it, since what's in it is what changes.
+	 */
+	final private Map<JsonElement, Long>        hashes  = new IdentityHashMap<>();
+	/**
+	 * What each object or array with a hash is inside of, so a change can be followed up to the top.
+	 */
+	final private Map<JsonElement, JsonElement> parents = new IdentityHashMap<>();
+
+	/**
+	 * Something in the object or array changed, so it and everything it's inside need working out again. Anything
+	 * without a hash can't have a parent with one, so we stop there.
+	 */
+	void changed(JsonElement container) {
+		for (JsonElement element = container; element != null && hashes.remove(element) != null; ) {
+			element = parents.remove(element);
+		}
+	}
+
+	/**
+	 * The object or array is gone (like a line that was taken away), so it and everything in it stop being kept
+	 * around by us. If it comes back, its hashes just get worked out again.
+	 */
+	void removed(JsonElement element) {
+		hashes.remove(element); //Even if it didn't have one, what's in it might still (see changed())
+		parents.remove(element);
+		if (element.isJsonObject()) {
+			for (Map.Entry<String, JsonElement> pair : element.getAsJsonObject().entrySet()) {
+				removed(pair.getValue());
+			}
+		} else if (element.isJsonArray()) {
+			for (JsonElement child : element.getAsJsonArray()) {
+				removed(child);
+			}
+		}
+	}
+
+	/**
+	 * Forgets everything, for when the elements have been swapped out from under us.
+	 */
+	void clear() {
+		hashes.clear();
+		parents.clear();
+	}
+
+	long hash(JsonElement element) {
+		if (element.isJsonNull()) {
+			return NULL;
+		}
+		if (element.isJsonPrimitive()) {
+			long type = element.getAsJsonPrimitive().isString() ? STRING
+					: element.getAsJsonPrimitive().isNumber() ? NUMBER : BOOLEAN;
+			return mix(type ^ hash(element.getAsString()));
+		}
+		Long known = hashes.get(element);
+		if (known != null) {
+			return known;
+		}
+		long hash;
+		if (element.isJsonObject()) {
+			hash = OBJECT;
+			for (Map.Entry<String, JsonElement> pair : element.getAsJsonObject().entrySet()) {
+				//Added up, so the order keys are in doesn't matter, same as JsonObject.equals
+				hash += mix(hash(pair.getKey()) * 31 + childHash(element, pair.getValue()));
+			}
+		} else {
+			hash = ARRAY;
+			for (JsonElement child : element.getAsJsonArray()) {
+				hash = mix(hash * 31 + childHash(element, child));
+			}
+		}
+		hashes.put(element, hash);
+		return hash;
+	}
+
+	/**
+	 * Every place the two differ, checking only inside objects and arrays whose hashes don't match. The right side's
+	 * hashes come from its own StructureHashes, so something temporary (like a line read off disk) doesn't get kept.
+	 */
+	List<Difference> diff(JsonElement left, StructureHashes rightHashes, JsonElement right) {
+		List<Difference> differences = new ArrayList<>();
+		diff("", left, rightHashes, right, differences);
+		return differences;
+	}
+
+	private void diff(String path, JsonElement left, StructureHashes rightHashes, JsonElement right,
+			List<Difference> differences) {
+		if (left != null && right != null && hash(left) == rightHashes.hash(right)) {
+			return;
+		}
+		if (left != null && right != null && left.isJsonObject() && right.isJsonObject()) {
+			JsonObject leftObject = left.getAsJsonObject(), rightObject = right.getAsJsonObject();
+			for (Map.Entry<String, JsonElement> pair : leftObject.entrySet()) {
+				diff(childPath(path, pair.getKey()), pair.getValue(), rightHashes, rightObject.get(pair.getKey()), differences);
+			}
+			for (Map.Entry<String, JsonElement> pair : rightObject.entrySet()) {
+				if (!leftObject.has(pair.getKey())) {
+					differences.add(new Difference(childPath(path, pair.getKey()), null, pair.getValue()));
+				}
+			}
+		} else if (left != null && right != null && left.isJsonArray() && right.isJsonArray()) {
+			JsonArray leftArray = left.getAsJsonArray(), rightArray = right.getAsJsonArray();
+			for (int i = 0; i < Math.max(leftArray.size(), rightArray.size()); i++) {
+				diff(path + "[" + i + "]", i < leftArray.size() ? leftArray.get(i) : null, rightHashes,
+						i < rightArray.size() ? rightArray.get(i) : null, differences);
+			}
+		} else {
+			differences.add(new Difference(path, left, right));
+		}
+	}
+
+	private long childHash(JsonElement parent, JsonElement child) {
+		long hash = hash(child);
+		if (child.isJsonObject() || child.isJsonArray()) {
+			parents.put(child, parent);
+		}
+		return hash;
+	}
+
+	private static String childPath(String path, String key) {
+		return path.isEmpty() ? key : path + "." + key;
+	}
+
+	/**
+	 * FNV-1a over the UTF-8 bytes, so it's 64 bits instead of String.hashCode's 32.
+	 */
+	private static long hash(String string) {
+		long hash = 0xcbf29ce484222325L;
+		for (byte b : string.getBytes(StandardCharsets.UTF_8)) {
+			hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+		}
+		return hash;
+	}
+
+	/**
+	 * Spreads the bits around, so sums and products of hashes don't line up by accident.
+	 */
+	private static long mix(long hash) {
+		hash = (hash ^ (hash >>> 33)) * 0xff51afd7ed558ccdL;
+		hash = (hash ^ (hash >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		return hash ^ (hash >>> 33);
+	}
+
+	/**
+	 * One place two lines differ: a primitive with different values, or something only one of them has.
+	 */
+	static class Difference {
+		final private String      path;
+		final private JsonElement left, right;
+
+		Difference(String path, JsonElement left, JsonElement right) {
+			this.path = path;
+			this.left = left;
+			this.right = right;
+		}
+
+		String getPath() {
+			return path;
+		}
+
+		/**
+		 * How the left side shows it, or null if it doesn't have anything there.
+		 */
+		String getLeft() {
+			return text(left);
+		}
+
+		String getRight() {
+			return text(right);
+		}
+
+		private static String text(JsonElement element) {
+			if (element == null) {
+				return null;
+			}
+			return element.isJsonPrimitive() ? element.getAsString() : element.toString();
+		}
+	}
+}
@@ -0,0 +1,252 @@
+package sample;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Where every primitive value sits in a line of json, by path (like "wallet.ids[2]"), found by going over the bytes
+ * without building any objects. That way an edited value can be swapped in without touching anything else on the
+ * line. Gson's JsonReader would do the reading, but it doesn't say where anything was, so this does it instead.
+ * Only takes strict json: anything Gson's lenient parsing would let slide just doesn't get scanned.
+ */
+class ValueSpans {
+	final private ByteBuffer           line;
+	final private Map<String, Integer> byPath = new HashMap<>();
+	/**
+	 * Offsets from the start of the line, in the order the values show up in it.
+	 */
+	private       int[]                starts = new int[16], ends = new int[16];
+	private       int                  count;
+	private       int                  position;
+
+	private ValueSpans(ByteBuffer line) {
+		this.line = line;
+	}
+
+	/**
+	 * Scans a line holding a single json object. Null if it isn't strict json, or if two values have the same path
+	 * (duplicate keys, or keys with dots or brackets in them), since then we can't be sure which one a field is.
+	 */
+	static ValueSpans scan(ByteBuffer line) {
+		ValueSpans spans = new ValueSpans(line);
+		try {
+			spans.skipSpace();
+			if (spans.peek() != '{') {
+				return null;
+			}
+			spans.value("");
+			spans.skipSpace();
+			return spans.position == line.limit() ? spans : null;
+		} catch (IllegalStateException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Which span the value at the path is, or -1 if there isn't one. Spans are numbered in the order they show up.
+	 */
+	int indexOf(String path) {
+		Integer index = byPath.get(path);
+		return index == null ? -1 : index;
+	}
+
+	int getStart(int index) {
+		return starts[index];
+	}
+
+	int getEnd(int index) {
+		return ends[index];
+	}
+
+	int size() {
+		return count;
+	}
+
+	private void value(String path) {
+		skipSpace();
+		byte b = peek();
+		if (b == '{') {
+			object(path);
+		} else if (b == '[') {
+			array(path);
+		} else {
+			int start = position;
+			if (b == '"') {
+				skipString();
+			} else {
+				while (position < line.limit() && !isDelimiter(line.get(position))) {
+					position++;
+				}
+				if (position == start) {
+					throw new IllegalStateException("Expected a value at " + start);
+				}
+			}
+			add(path, start, position);
+		}
+	}
+
+	private void object(String path) {
+		position++;
+		skipSpace();
+		if (peek() == '}') {
+			position++;
+			return;
+		}
+		while (true) {
+			skipSpace();
+			String key = readKey();
+			skipSpace();
+			expect(':');
+			value(path.isEmpty() ? key : path + "." + key);
+			skipSpace();
+			if (peek() == '}') {
+				position++;
+				return;
+			}
+			expect(',');
+		}
+	}
+
+	private void array(String path) {
+		position++;
+		skipSpace();
+		if (peek() == ']') {
+			position++;
+			return;
+		}
+		for (int i = 0; ; i++) {
+			value(path + "[" + i + "]");
+			skipSpace();
+			if (peek() == ']') {
+				position++;
+				return;
+			}
+			expect(',');
+		}
+	}
+
+	private void add(String path, int start, int end) {
+		if (byPath.put(path, count) != null) {
+			throw new IllegalStateException("Two values at " + path);
+		}
+		if (count == starts.length) {
+			starts = Arrays.copyOf(starts, count * 2);
+			ends = Arrays.copyOf(ends, count * 2);
+		}
+		starts[count] = start;
+		ends[count] = end;
+		count++;
+	}
+
+	/**
+	 * Reads a key, turning escapes back into what they stand for so it matches the key Gson gives us.
+	 */
+	private String readKey() {
+		expect('"');
+		StringBuilder string = null;
+		int runStart = position;
+		while (true) {
+			byte b = peek();
+			if (b == '"') {
+				String run = decode(runStart, position);
+				position++;
+				return string == null ? run : string.append(run).toString();
+			}
+			if (b != '\\') {
+				position++;
+				continue;
+			}
+			if (string == null) {
+				string = new StringBuilder();
+			}
+			string.append(decode(runStart, position));
+			position++;
+			char escaped = (char) peek();
+			position++;
+			switch (escaped) {
+				case 'b':
+					string.append('\b');
+					break;
+				case 'f':
+					string.append('\f');
+					break;
+				case 'n':
+					string.append('\n');
+					break;
+				case 'r':
+					string.append('\r');
+					break;
+				case 't':
+					string.append('\t');
+					break;
+				case 'u':
+					if (position + 4 > line.limit()) {
+						throw new IllegalStateException("Unfinished escape at " + position);
+					}
+					try {
+						string.append((char) Integer.parseInt(decode(position, position + 4), 16));
+					} catch (NumberFormatException e) {
+						throw new IllegalStateException("Bad escape at " + position);
+					}
+					position += 4;
+					break;
+				default:
+					string.append(escaped); //Quotes, slashes and backslashes
+			}
+			runStart = position;
+		}
+	}
+
+	/**
+	 * Values don't need decoding, just their end found.
+	 */
+	private void skipString() {
+		expect('"');
+		while (true) {
+			byte b = peek();
+			position += b == '\\' ? 2 : 1;
+			if (b == '"') {
+				return;
+			}
+		}
+	}
+
+	private String decode(int from, int to) {
+		byte[] bytes = new byte[to - from];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = line.get(from + i);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private void skipSpace() {
+		while (position < line.limit() && isSpace(line.get(position))) {
+			position++;
+		}
+	}
+
+	private void expect(char c) {
+		if (peek() != c) {
+			throw new IllegalStateException("Expected " + c + " at " + position);
+		}
+		position++;
+	}
+
+	private byte peek() {
+		if (position >= line.limit()) {
+			throw new IllegalStateException("Line ended early");
+		}
+		return line.get(position);
+	}
+
+	private static boolean isSpace(byte b) {
+		return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+	}
+
+	private static boolean isDelimiter(byte b) {
+		return b == ',' || b == '}' || b == ']' || isSpace(b);
+	}
+}
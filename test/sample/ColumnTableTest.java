@@ -0,0 +1,60 @@
+package sample;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * The table is read-only and read from disk, so it shows the file as saved, and switching to it and back never
+ * touches edits that haven't been saved yet. Plain java like the other tests, throws on the first check that fails.
+ */
+public class ColumnTableTest {
+	public static void main(String[] args) throws IOException {
+		readsEveryColumn();
+		showsSavedValuesAndLeavesEditsAlone();
+		System.out.println("ColumnTableTest passed");
+	}
+
+	private static void readsEveryColumn() throws IOException {
+		Path file = write("{\"id\":1,\"name\":\"a\",\"w\":{\"ok\":true}}\n// not a row\n{\"id\":2,\"name\":null,\"w\":{\"ok\":false}}\n");
+		ColumnTable table = ColumnTable.read(file);
+		check(table.getRowCount() == 2, "two rows, got " + table.getRowCount());
+		check(table.getColumnCount() == 3, "three columns, got " + table.getColumnCount());
+		check("w.ok".equals(table.getPath(2)), "nested path, got " + table.getPath(2));
+		check("null".equals(table.getText(1, 1)), "null shown as null, got " + table.getText(1, 1));
+		check(table.compare(0, 0, 1) < 0, "ids sort as numbers");
+	}
+
+	/**
+	 * An unsaved edit isn't in the table, is still there (and still dirty) after the table's been read, and shows
+	 * up in the table once it's saved.
+	 */
+	private static void showsSavedValuesAndLeavesEditsAlone() throws IOException {
+		Path file = write("{\"id\":1,\"name\":\"a\"}\n");
+		JsonManipGsonImpl manip = new JsonManipGsonImpl(IEditorListener.NONE, file);
+		int name = manip.findField(0, "name");
+		manip.setPairValue(name, "edited");
+
+		ColumnTable beforeSave = ColumnTable.read(file);
+		check("a".equals(beforeSave.getText(0, 1)), "table shows the saved value, got " + beforeSave.getText(0, 1));
+		check(manip.isDirty() && "edited".equals(manip.getFieldText(name)), "edit still pending after reading the table");
+
+		manip.saveData(file);
+		ColumnTable afterSave = ColumnTable.read(file);
+		check("edited".equals(afterSave.getText(0, 1)), "table shows the edit once saved, got " + afterSave.getText(0, 1));
+	}
+
+	private static Path write(String text) throws IOException {
+		Path file = Files.createTempFile("jsoneditor-test", ".jsonl");
+		file.toFile().deleteOnExit();
+		Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+
+	private static void check(boolean ok, String what) {
+		if (!ok) {
+			throw new AssertionError(what);
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package sample;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Saves files through the editor and checks what ends up on disk, for the things a save must never lose. Plain
+ * java, no test framework, so it runs the same way Batch does:
+ *
+ *     java -cp <classes>:<test classes>:lib/gson-2.7.jar sample.IncrementalSaveTest
+ *
+ * Throws (and exits non-zero) on the first check that fails.
+ */
+public class IncrementalSaveTest {
+	public static void main(String[] args) throws IOException {
+		nullMembersSurviveDuplication();
+		fieldSetToNullIsSaved();
+		unpatchableLineKeepsNullsAndText();
+		System.out.println("IncrementalSaveTest passed");
+	}
+
+	/**
+	 * A duplicated line gets written out whole, so it has to keep its null members.
+	 */
+	private static void nullMembersSurviveDuplication() throws IOException {
+		Path file = write("{\"a\":1,\"n\":null}\n");
+		JsonManipGsonImpl manip = load(file);
+		manip.duplicateAndAddToList(0);
+		manip.saveData(file);
+		check(file, "{\"a\":1,\"n\":null}\n{\"a\":1,\"n\":null}\n");
+	}
+
+	/**
+	 * Typing null into a field saves it as null, rather than taking the key away.
+	 */
+	private static void fieldSetToNullIsSaved() throws IOException {
+		Path file = write("{\"a\":1,\"b\":\"x\",\"c\":null}\n");
+		JsonManipGsonImpl manip = load(file);
+		manip.setPairValue(manip.findField(0, "b"), "null");
+		manip.saveData(file);
+		check(file, "{\"a\":1,\"b\":null,\"c\":null}\n");
+	}
+
+	/**
+	 * A line that isn't strict json (single quotes here) can't have values patched into it, so it gets
+	 * re-serialized instead. That still has to keep its nulls, and write what was typed without html escapes.
+	 */
+	private static void unpatchableLineKeepsNullsAndText() throws IOException {
+		Path file = write("{'a':1,\"b\":\"x\",\"c\":null}\n");
+		JsonManipGsonImpl manip = load(file);
+		manip.setPairValue(manip.findField(0, "b"), "<y='z'&>");
+		manip.saveData(file);
+		check(file, "{\"a\":1,\"b\":\"<y='z'&>\",\"c\":null}\n");
+	}
+
+	private static JsonManipGsonImpl load(Path file) throws IOException {
+		JsonManipGsonImpl manip = new JsonManipGsonImpl(IEditorListener.NONE, file);
+		manip.addElementsToUI();
+		return manip;
+	}
+
+	private static Path write(String text) throws IOException {
+		Path file = Files.createTempFile("jsoneditor-test", ".jsonl");
+		file.toFile().deleteOnExit();
+		Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+
+	private static void check(Path file, String expected) throws IOException {
+		String saved = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+		if (!saved.equals(expected)) {
+			throw new AssertionError("Expected\n" + expected + "but saved\n" + saved);
+		}
+	}
+}